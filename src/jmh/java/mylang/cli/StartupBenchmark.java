@@ -0,0 +1,92 @@
+package mylang.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Compares what a single compile costs from the outside: a cold CLI launch, a CLI launch backed by the AppCDS
+// archive, a CLI launch that hands the work to a running daemon, and the bare round trip to the daemon as seen by a
+// client that stays connected (an editor, say). Not a JMH benchmark, since most of what we measure is process
+// startup.
+//
+//   mvn -Pbench package exec:exec -Dbench.main=mylang.cli.StartupBenchmark -Dbench.args="<launches> <round trips>"
+//
+// Run `bin/mylang-train-cds` first; the CDS numbers are skipped if there's no archive.
+public class StartupBenchmark {
+    private static final Path JAR = Path.of("target/deepsource-1.0-SNAPSHOT.jar");
+    private static final Path ARCHIVE = Path.of("target/mylang.jsa");
+    private static final String PROGRAM = "if value >= 10 {\nval limit = 42\nnotify(value, limit)\n}\n";
+
+    public static void main(String[] args) throws Exception {
+        int launches = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int roundTrips = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        var sample = Files.createTempFile("mylang-bench", ".my");
+        var socket = Files.createTempDirectory("mylang-bench").resolve("daemon.sock");
+        Files.writeString(sample, PROGRAM);
+
+        report("cold CLI", time(launches, List.of("java", "-jar", JAR.toString(), "compile", sample.toString())));
+        if (Files.exists(ARCHIVE)) {
+            report("CDS CLI", time(launches, List.of("java", "-XX:SharedArchiveFile=" + ARCHIVE, "-jar",
+                    JAR.toString(), "compile", sample.toString())));
+        }
+
+        var daemon = new ProcessBuilder("java", "-jar", JAR.toString(), "daemon", "--listen", socket.toString())
+                .redirectErrorStream(true)
+                .start();
+        try {
+            // The daemon only announces itself once it's warmed up.
+            var reader = new BufferedReader(new InputStreamReader(daemon.getInputStream()));
+            var line = reader.readLine();
+            if (line == null || !line.startsWith("Listening"))
+                throw new IOException("Daemon didn't start: " + line);
+
+            var cdsFlags = Files.exists(ARCHIVE) ? List.of("-XX:SharedArchiveFile=" + ARCHIVE) : List.<String>of();
+            var command = new ArrayList<>(List.of("java"));
+            command.addAll(cdsFlags);
+            command.addAll(List.of("-jar", JAR.toString(), "compile", "--connect", socket.toString(), sample.toString()));
+            report("CLI via daemon", time(launches, command));
+
+            try (var client = DaemonClient.connect(socket.toString())) {
+                var report = new StringBuilder();
+                var samples = new long[roundTrips];
+                for (int i = 0; i < roundTrips; i++) {
+                    long start = System.nanoTime();
+                    client.compile("bench", PROGRAM, report);
+                    samples[i] = System.nanoTime() - start;
+                    report.setLength(0);
+                }
+                // The first half warms up our side of the connection.
+                report("daemon round trip", Arrays.copyOfRange(samples, roundTrips / 2, roundTrips));
+            }
+        } finally {
+            daemon.destroy();
+            daemon.waitFor();
+            Files.deleteIfExists(sample);
+        }
+    }
+
+    private static long[] time(int launches, List<String> command) throws IOException, InterruptedException {
+        var samples = new long[launches];
+        for (int i = 0; i < launches; i++) {
+            long start = System.nanoTime();
+            var process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            process.getInputStream().readAllBytes();
+            process.waitFor();
+            samples[i] = System.nanoTime() - start;
+        }
+        return samples;
+    }
+
+    private static void report(String label, long[] samples) {
+        Arrays.sort(samples);
+        double median = samples[samples.length / 2] / 1e6;
+        double p90 = samples[(int) (samples.length * 0.9)] / 1e6;
+        System.out.printf("%-20s median %9.3f ms   p90 %9.3f ms   (n=%d)%n", label, median, p90, samples.length);
+    }
+}
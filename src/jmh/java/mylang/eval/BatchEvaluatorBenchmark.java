@@ -0,0 +1,75 @@
+package mylang.eval;
+
+import mylang.Parser;
+import mylang.ast.ConditionExpression;
+import mylang.ast.IfStatement;
+import mylang.ast.Statement;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Filters a million rows with a single comparison, against a constant and against another column. Divide the rows
+// by the time per operation for the throughput. Also runs a small program over the rows, with and without an
+// execution profile, to measure what profiling costs.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BatchEvaluatorBenchmark {
+    private static final int ROWS = 1 << 20;
+
+    private BatchEvaluator evaluator;
+    private ConditionExpression byConstant;
+    private ConditionExpression byColumn;
+    private Statement program;
+    private ExecutionProfile profile;
+    private long calls;
+
+    private static ConditionExpression condition(String condition) {
+        var root = (IfStatement) new Parser("if " + condition + " {}").parse().astRoot();
+        return root.getConditionExpression();
+    }
+
+    @Setup
+    public void setup() {
+        var random = new Random(42);
+        int[] a = new int[ROWS];
+        int[] b = new int[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            a[i] = random.nextInt(1000);
+            b[i] = random.nextInt(1000);
+        }
+        evaluator = new BatchEvaluator(Map.of("a", a, "b", b));
+        byConstant = condition("a < 500");
+        byColumn = condition("a >= b");
+        program = new Parser("if a < 500 {\n" +
+                "    if b < 10 { low(a) }\n" +
+                "    if b > 990 { high(a) }\n" +
+                "    if a == b { same(a) }\n" +
+                "}").parse().astRoot();
+        profile = new ExecutionProfile(program);
+    }
+
+    @Benchmark
+    public Selection constant() {
+        return evaluator.select(byConstant);
+    }
+
+    @Benchmark
+    public Selection column() {
+        return evaluator.select(byColumn);
+    }
+
+    @Benchmark
+    public long execute() {
+        evaluator.execute(program, (call, row, arguments) -> calls++);
+        return calls;
+    }
+
+    @Benchmark
+    public long executeProfiled() {
+        evaluator.execute(program, (call, row, arguments) -> calls++, profile);
+        return calls;
+    }
+}
@@ -0,0 +1,68 @@
+package mylang.eval;
+
+import mylang.CompilationResult;
+import mylang.Parser;
+import mylang.ast.ConditionExpression;
+import mylang.ast.IfStatement;
+import mylang.ast.Name;
+import mylang.ast.Number;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Matches one event against tens of thousands of single-condition rules, through the index and by testing every
+// rule's condition in turn.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RuleIndexBenchmark {
+    private static final String[] NAMES = {"age", "country", "score", "visits", "plan", "device", "hour", "region"};
+    private static final String[] OPERATORS = {"<", "<=", ">", ">=", "==", "!="};
+
+    @Param({"1000", "10000", "50000"})
+    public int rules;
+
+    private RuleIndex index;
+    private List<ConditionExpression> conditions;
+    private Map<String, Integer> event;
+
+    @Setup
+    public void setup() {
+        var random = new Random(42);
+        var programs = new ArrayList<CompilationResult>();
+        conditions = new ArrayList<>();
+        for (int i = 0; i < rules; i++) {
+            // Mostly equality, as rule sets keyed on ids tend to be.
+            var op = random.nextInt(4) == 0 ? OPERATORS[random.nextInt(OPERATORS.length)] : "==";
+            var source = "if " + NAMES[random.nextInt(NAMES.length)] + " " + op + " " + random.nextInt(100_000) +
+                    " { act() }";
+            var result = new Parser(source).parse();
+            programs.add(result);
+            conditions.add(((IfStatement) result.astRoot()).getConditionExpression());
+        }
+        index = new RuleIndex(programs);
+        event = Map.of("age", 42, "country", 44, "score", 70_000, "visits", 3, "plan", 2, "device", 7, "hour", 13,
+                "region", 9);
+    }
+
+    @Benchmark
+    public void indexed(Blackhole blackhole) {
+        index.match(event, blackhole::consume);
+    }
+
+    @Benchmark
+    public void oneByOne(Blackhole blackhole) {
+        for (int rule = 0; rule < conditions.size(); rule++) {
+            var condition = conditions.get(rule);
+            var value = event.get(((Name) condition.lhs()).name());
+            if (value != null && BatchEvaluator.test(value, ((Number) condition.rhs()).number(),
+                    condition.operator().string()))
+                blackhole.consume(rule);
+        }
+    }
+}
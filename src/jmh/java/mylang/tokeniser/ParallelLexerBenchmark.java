@@ -0,0 +1,43 @@
+package mylang.tokeniser;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Lexes a source of about 8 MB on one core and sharded across all of them.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelLexerBenchmark {
+    private String source;
+
+    @Setup
+    public void setup() {
+        var builder = new StringBuilder("if x == 10 {\n");
+        for (int i = 0; builder.length() < 8 << 20; i++) {
+            builder.append("    val name = ").append(i * 7919).append('\n');
+            builder.append("    call(name, 12345)\n");
+        }
+        source = builder.append("}\n").toString();
+    }
+
+    @Benchmark
+    public TokenBuffer oneShard() {
+        return ParallelLexer.lex(source, 1);
+    }
+
+    @Benchmark
+    public TokenBuffer allCores() {
+        return ParallelLexer.lex(source);
+    }
+
+    // Lexing without keeping the tokens, for reference.
+    @Benchmark
+    public int tokenizerOnly() {
+        var tokenizer = Tokenizer.getInstance(source).get();
+        int tokens = 0;
+        while (tokenizer.nextTokenStart() >= 0 && tokenizer.eatToken().success())
+            tokens++;
+        return tokens;
+    }
+}
@@ -0,0 +1,60 @@
+package mylang.tokeniser;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Scans a single run of `length` bytes, the way the tokenizer does for whitespace, names and line ends.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ScannerBenchmark {
+    @Param({"4", "16", "64", "256"})
+    public int length;
+
+    private byte[] spaces;
+    private byte[] letters;
+
+    @Setup
+    public void setup() {
+        spaces = new byte[length + 1];
+        Arrays.fill(spaces, (byte) ' ');
+        spaces[length] = 'x';
+
+        letters = new byte[length + 1];
+        for (int i = 0; i < length; i++)
+            letters[i] = (byte) ('a' + i % 26);
+        letters[length] = '\n';
+    }
+
+    @Benchmark
+    public int whitespaceScalar() {
+        return Scanner.scalarSkipWhitespace(spaces, 0, spaces.length);
+    }
+
+    @Benchmark
+    public int whitespaceSwar() {
+        return Scanner.swarSkipWhitespace(spaces, 0, spaces.length);
+    }
+
+    @Benchmark
+    public int alphaScalar() {
+        return Scanner.scalarSkipAlpha(letters, 0, letters.length);
+    }
+
+    @Benchmark
+    public int alphaSwar() {
+        return Scanner.swarSkipAlpha(letters, 0, letters.length);
+    }
+
+    @Benchmark
+    public int newlineScalar() {
+        return Scanner.scalarFindNewline(letters, 0, letters.length);
+    }
+
+    @Benchmark
+    public int newlineSwar() {
+        return Scanner.swarFindNewline(letters, 0, letters.length);
+    }
+}
@@ -0,0 +1,38 @@
+package mylang.tokeniser;
+
+import mylang.CompilationResult;
+import mylang.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Validates a program of about 8 MB with lexing on the parser's thread and on a lexer thread of its own.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TokenRingBenchmark {
+    private final Parser parser = new Parser();
+    private String source;
+
+    @Setup
+    public void setup() {
+        var builder = new StringBuilder("if x == 10 {\n");
+        for (int i = 0; builder.length() < 8 << 20; i++) {
+            builder.append("    val name = ").append(i * 7919).append('\n');
+            builder.append("    call(name, 12345)\n");
+        }
+        source = builder.append("}\n").toString();
+    }
+
+    @Benchmark
+    public CompilationResult oneThread() {
+        parser.reset(source);
+        return parser.validate();
+    }
+
+    @Benchmark
+    public CompilationResult pipelined() {
+        parser.reset(source, TokenRing.start(source));
+        return parser.validate();
+    }
+}
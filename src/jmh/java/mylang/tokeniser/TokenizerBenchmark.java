@@ -0,0 +1,45 @@
+package mylang.tokeniser;
+
+import mylang.CompilationResult;
+import mylang.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Parses a program with a large if body, with the bulk scans on and off. The switch is read once per JVM, hence
+// the separate forks.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenizerBenchmark {
+    @Param({"short", "long"})
+    public String names;
+
+    private final Parser parser = new Parser();
+    private String source;
+
+    @Setup
+    public void setup() {
+        var name = names.equals("short") ? "x" : "averyveryverylongidentifiername";
+        var builder = new StringBuilder("if " + name + " == 10 {\n");
+        for (int i = 0; i < 1000; i++) {
+            builder.append("    val ").append(name).append(" = ").append(i * 7919).append('\n');
+            builder.append("    ").append(name).append("(").append(name).append(", 12345)\n");
+        }
+        source = builder.append("}\n").toString();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dmylang.tokenizer.swar=true")
+    public CompilationResult parseSwar() {
+        parser.reset(source);
+        return parser.parse();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dmylang.tokenizer.swar=false")
+    public CompilationResult parseScalar() {
+        parser.reset(source);
+        return parser.parse();
+    }
+}
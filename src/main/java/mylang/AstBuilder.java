@@ -0,0 +1,88 @@
+package mylang;
+
+import mylang.ast.*;
+import mylang.ast.Number;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Rebuilds the AST out of parse events. This is what `Parser.parse()` uses under the hood.
+class AstBuilder implements ParseListener {
+    private static class IfFrame {
+        private ConditionExpression condition;
+        private final List<Statement> statements = new ArrayList<>();
+    }
+
+    private final Deque<IfFrame> frames = new ArrayDeque<>();
+    // Null unless hash-consing.
+    private final AstInterner interner;
+    private Name callName;
+    private List<Object> callArguments;
+    private Statement root;
+
+    AstBuilder() {
+        this(null);
+    }
+
+    AstBuilder(AstInterner interner) {
+        this.interner = interner;
+    }
+
+    private void add(Statement statement) {
+        if (frames.isEmpty())
+            root = statement;
+        else frames.peek().statements.add(statement);
+    }
+
+    @Override
+    public void enterIf() {
+        frames.push(new IfFrame());
+    }
+
+    @Override
+    public void condition(ConditionExpression condition) {
+        frames.peek().condition = interner == null ? condition : interner.condition(condition);
+    }
+
+    @Override
+    public void exitIf(long span) {
+        var frame = frames.pop();
+        add(new IfStatement(frame.condition, frame.statements, span));
+    }
+
+    @Override
+    public void discardIf() {
+        frames.pop();
+    }
+
+    @Override
+    public void declaration(Name name, Number number, long span) {
+        add(interner == null ? new DeclarationStatement(name, number, span) : interner.declaration(name, number));
+    }
+
+    @Override
+    public void call(Name name) {
+        callName = name;
+        callArguments = new ArrayList<>();
+    }
+
+    @Override
+    public void argument(Object argument) {
+        callArguments.add(argument);
+    }
+
+    @Override
+    public void exitCall(long span) {
+        add(interner == null
+                ? new FunctionCallStatement(callName, callArguments, span)
+                : interner.call(callName, callArguments));
+        callName = null;
+        callArguments = null;
+    }
+
+    public Statement root() {
+        return root;
+    }
+}
@@ -0,0 +1,145 @@
+package mylang;
+
+import mylang.ast.*;
+import mylang.ast.Number;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Canonicalises structurally equal nodes, so that a fragment repeated all over a corpus is kept in memory once and
+// equal nodes can be compared by reference. Hand one to `Parser.setInterner()`; it may be shared by any number of
+// parsers and threads.
+//
+// A shared node can't point at one place in the source, so interned nodes have no span. If statements aren't
+// interned since their bodies are built incrementally, but everything they contain is.
+//
+// Lookups don't take a lock, so parsers on different threads don't queue up behind each other. The table is bounded
+// with a clock: a hit only marks its node as referenced, and once the table is full, whichever thread went past the
+// capacity sweeps it, forgetting the nodes that weren't referenced since the sweep last passed them. Forgotten nodes
+// stay valid, they're just no longer handed out to later parses.
+public class AstInterner {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static class Slot {
+        final Object node;
+        volatile boolean referenced;
+
+        Slot(Object node) {
+            this.node = node;
+        }
+    }
+
+    private final ConcurrentHashMap<Object, Slot> table = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // Only one thread sweeps at a time, the others carry on parsing.
+    private final ReentrantLock sweeping = new ReentrantLock();
+    // Where the last sweep stopped. Guarded by `sweeping`.
+    private Iterator<Slot> hand;
+
+    public AstInterner() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public AstInterner(int capacity) {
+        if (capacity < 1)
+            throw new RuntimeException("Interner capacity must be positive!");
+        this.capacity = capacity;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T intern(T node) {
+        var slot = table.get(node);
+        if (slot == null) {
+            slot = table.putIfAbsent(node, new Slot(node));
+            if (slot == null) {
+                misses.increment();
+                if (table.size() > capacity)
+                    sweep();
+                return node;
+            }
+        }
+        hits.increment();
+        // Hot nodes are hit over and over, so don't write the flag when it's already set.
+        if (!slot.referenced)
+            slot.referenced = true;
+        return (T) slot.node;
+    }
+
+    private void sweep() {
+        if (!sweeping.tryLock())
+            return;
+        try {
+            while (table.size() > capacity) {
+                if (hand == null || !hand.hasNext())
+                    hand = table.values().iterator();
+                if (!hand.hasNext())
+                    break;
+                var slot = hand.next();
+                if (slot.referenced)
+                    slot.referenced = false;
+                else
+                    hand.remove();
+            }
+        } finally {
+            sweeping.unlock();
+        }
+    }
+
+    public Name name(Name name) {
+        return intern(name.span() == Span.NONE ? name : new Name(name.name()));
+    }
+
+    public Number number(Number number) {
+        return intern(number.span() == Span.NONE ? number : new Number(number.number()));
+    }
+
+    public Operator operator(Operator operator) {
+        return intern(operator.span() == Span.NONE ? operator : new Operator(operator.string()));
+    }
+
+    // Condition operands and call arguments are either a `Name` or a `Number`.
+    public Object operand(Object operand) {
+        if (operand instanceof Name name)
+            return name(name);
+        if (operand instanceof Number number)
+            return number(number);
+        return operand;
+    }
+
+    public ConditionExpression condition(ConditionExpression condition) {
+        var lhs = operand(condition.lhs());
+        var rhs = operand(condition.rhs());
+        return intern(new ConditionExpression(lhs, rhs, operator(condition.operator())));
+    }
+
+    public DeclarationStatement declaration(Name name, Number number) {
+        return intern(new DeclarationStatement(name(name), number(number)));
+    }
+
+    public FunctionCallStatement call(Name name, List<Object> arguments) {
+        var canonicalArguments = new ArrayList<>(arguments.size());
+        for (var argument : arguments)
+            canonicalArguments.add(operand(argument));
+        return intern(new FunctionCallStatement(name(name), List.copyOf(canonicalArguments)));
+    }
+
+    // May briefly go past the capacity while another thread is sweeping.
+    public int size() {
+        return table.size();
+    }
+
+    // How many lookups found an equal node already interned.
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+}
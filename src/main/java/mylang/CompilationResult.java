@@ -7,17 +7,35 @@ import java.util.List;
 public class CompilationResult {
     private final List<Problem> problems;
     private final Statement root;
+    private final boolean failed;
+    private final SourceIndex sourceIndex;
 
     public CompilationResult(Statement root, List<Problem> problems) {
+        this(root, problems, root == null);
+    }
+
+    // Event-driven parses don't build an AST, so they have no root to go by and report failure explicitly.
+    public CompilationResult(Statement root, List<Problem> problems, boolean failed) {
+        this(root, problems, failed, (SourceIndex) null);
+    }
+
+    public CompilationResult(Statement root, List<Problem> problems, boolean failed, CharSequence source) {
+        this(root, problems, failed, source == null ? null : new SourceIndex(source));
+    }
+
+    // Shares `sourceIndex` with the problems that point into it.
+    CompilationResult(Statement root, List<Problem> problems, boolean failed, SourceIndex sourceIndex) {
         this.root = root;
         this.problems = problems;
+        this.failed = failed;
+        this.sourceIndex = sourceIndex;
     }
 
     // Compilation fails only when we fail to yield an AST root.
     // Even when there are problems but the top-level statement is fine, we don't consider that a compilation failure.
     // Questionable design decision, but for now I'm gonna roll with it.
     public boolean failed() {
-        return root == null;
+        return failed;
     }
 
     public boolean hasProblems() {
@@ -31,4 +49,11 @@ public class CompilationResult {
     public List<Problem> problems() {
         return problems;
     }
+
+    // Maps the spans of the AST's nodes back to lines and columns.
+    public SourceIndex sourceIndex() {
+        if (sourceIndex == null)
+            throw new RuntimeException("No source to index!");
+        return sourceIndex;
+    }
 }
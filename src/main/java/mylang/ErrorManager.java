@@ -1,5 +1,6 @@
 package mylang;
 
+import mylang.metrics.CompilerMetrics;
 import mylang.tokeniser.Tokenizer;
 import mylang.tokeniser.Type;
 
@@ -9,11 +10,55 @@ import java.util.List;
 public class ErrorManager {
     private boolean shouldReportError = true;
     private boolean canRecover = true;
+    private String abortReason;
     private final Tokenizer.State tokenizerState;
     private final List<Problem> problems = new ArrayList<>();
+    private final CompilerMetrics metrics;
+    private int maxProblems = Integer.MAX_VALUE;
+    // What problems point into. Made from the tokenizer's source on first use unless the parser hands one over.
+    private SourceIndex sourceIndex;
 
     public ErrorManager(Tokenizer.State tokenizerState) {
+        this(tokenizerState, CompilerMetrics.NONE);
+    }
+
+    public ErrorManager(Tokenizer.State tokenizerState, CompilerMetrics metrics) {
         this.tokenizerState = tokenizerState;
+        this.metrics = metrics;
+    }
+
+    // Problems reported from now on point into `sourceIndex`, which has to cover where they happen.
+    public void setSourceIndex(SourceIndex sourceIndex) {
+        this.sourceIndex = sourceIndex;
+    }
+
+    private void addProblem(String description) {
+        if (sourceIndex == null)
+            sourceIndex = new SourceIndex(tokenizerState.source());
+        var problem = new Problem(description, sourceIndex, tokenizerState.lineBeginOffset(),
+                tokenizerState.lastTokenBegin());
+        problems.add(problem);
+        metrics.problemEmitted(problem);
+    }
+
+    // Problems past the limit abort the compilation instead of being reported.
+    public void setMaxProblems(int maxProblems) {
+        this.maxProblems = maxProblems;
+    }
+
+    private void report(String description) {
+        if (problems.size() < maxProblems)
+            addProblem(description);
+        else abort("Problem count exceeds the limit of %d", maxProblems);
+    }
+
+    // Forgets everything about the previous program. Problems handed out by `problems()` are copies and stay valid.
+    public void reset() {
+        shouldReportError = true;
+        canRecover = true;
+        abortReason = null;
+        sourceIndex = null;
+        problems.clear();
     }
 
     public void enableErrorReporting() {
@@ -26,24 +71,50 @@ public class ErrorManager {
 
     public void emitFatalError(String errorFmt, Object... args) {
         canRecover = false;
+        if (aborted())
+            return;
+
         var error = String.format(errorFmt, args);
         if (shouldReportError) {
-            var problem = new Problem(tokenizerState, error);
-            problems.add(problem);
+            report(error);
             disableErrorReporting();
         }
     }
 
+    // Stops the compilation for good. Unlike fatal errors, an abort is always reported and nothing can recover
+    // from it, not even an enclosing statement. Only the first abort is reported.
+    public void abort(String reasonFmt, Object... args) {
+        if (aborted())
+            return;
+
+        abortReason = String.format(reasonFmt, args);
+        canRecover = false;
+        addProblem(abortReason);
+        disableErrorReporting();
+    }
+
+    public boolean aborted() {
+        return abortReason != null;
+    }
+
+    public String abortReason() {
+        return abortReason;
+    }
+
     public boolean canRecover() {
         return canRecover;
     }
 
     public boolean emitSyntaxError(String errorFmt, Object... args) {
+        if (aborted())
+            return false;
+
         if (shouldReportError) {
-            var problem = new Problem(tokenizerState, String.format(errorFmt, args));
-            problems.add(problem);
+            report(String.format(errorFmt, args));
             disableErrorReporting();
         }
+        if (aborted())
+            return false;
 
         // If we are not at the end of file, we can probably recover.
         canRecover = !tokenizerState.atEndOfFile();
@@ -54,6 +125,14 @@ public class ErrorManager {
         return List.copyOf(problems);
     }
 
+    // Same as `problems()`, but forgets them too, for parses that hand out their problems in parts. An abort stays
+    // in effect.
+    public List<Problem> takeProblems() {
+        var out = List.copyOf(problems);
+        problems.clear();
+        return out;
+    }
+
     public static String buildExpectedTokenTypeMessage(Type... candidates) {
         var builder = new StringBuilder("Expected token of type ");
         int i = 0;
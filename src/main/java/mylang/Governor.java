@@ -0,0 +1,50 @@
+package mylang;
+
+// Keeps an eye on a parse on behalf of the tokenizer, which asks it before lexing every token whether to carry
+// on. Covers the limits that grow with the input as a whole (tokens and time) as well as cancellation. Limits
+// tied to a particular construct are checked by the parser itself.
+public class Governor {
+    // Reading the clock for every token would show up in profiles.
+    private static final int CLOCK_CHECK_INTERVAL = 64;
+
+    private ParseLimits limits = ParseLimits.DEFAULT;
+    private long deadline;
+    private boolean hasDeadline;
+    private int tokens;
+    private int ticks;
+    private volatile boolean cancelled;
+
+    // Starts the clock. Cancellation requested before the start still counts.
+    public void start(ParseLimits limits) {
+        this.limits = limits;
+        tokens = 0;
+        ticks = 0;
+        hasDeadline = limits.timeout() != null;
+        if (hasDeadline)
+            deadline = System.nanoTime() + limits.timeout().toNanos();
+    }
+
+    // May be called from any thread. The parse stops at its next token.
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean cancelled() {
+        return cancelled;
+    }
+
+    public void tokenEaten() {
+        tokens++;
+    }
+
+    // Why the parse must stop, or null to carry on.
+    public String check() {
+        if (cancelled)
+            return "Compilation cancelled";
+        if (tokens >= limits.maxTokens())
+            return String.format("Token count exceeds the limit of %d", limits.maxTokens());
+        if (hasDeadline && ++ticks % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0)
+            return String.format("Compilation timed out after %d ms", limits.timeout().toMillis());
+        return null;
+    }
+}
@@ -0,0 +1,41 @@
+package mylang;
+
+import java.time.Duration;
+
+// Bounds on the work a single parse may do, so that pathological input ends in a problem rather than tying up
+// the parser. Whichever limit is hit first aborts the parse with a problem saying so. `timeout` may be null for
+// no time limit.
+//
+// `maxProblems` counts problems reported before the limit was hit; the problem about the limit itself comes on
+// top of them.
+public record ParseLimits(Duration timeout, int maxTokens, int maxNestingDepth, int maxArguments, int maxProblems) {
+    public static final ParseLimits DEFAULT = new ParseLimits(null, Integer.MAX_VALUE,
+            Parser.DEFAULT_MAX_NESTING_DEPTH, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    public ParseLimits {
+        if (timeout != null && timeout.isNegative())
+            throw new RuntimeException("Timeout must not be negative!");
+        if (maxTokens < 1 || maxNestingDepth < 1 || maxArguments < 0 || maxProblems < 0)
+            throw new RuntimeException("Invalid limits!");
+    }
+
+    public ParseLimits withTimeout(Duration timeout) {
+        return new ParseLimits(timeout, maxTokens, maxNestingDepth, maxArguments, maxProblems);
+    }
+
+    public ParseLimits withMaxTokens(int maxTokens) {
+        return new ParseLimits(timeout, maxTokens, maxNestingDepth, maxArguments, maxProblems);
+    }
+
+    public ParseLimits withMaxNestingDepth(int maxNestingDepth) {
+        return new ParseLimits(timeout, maxTokens, maxNestingDepth, maxArguments, maxProblems);
+    }
+
+    public ParseLimits withMaxArguments(int maxArguments) {
+        return new ParseLimits(timeout, maxTokens, maxNestingDepth, maxArguments, maxProblems);
+    }
+
+    public ParseLimits withMaxProblems(int maxProblems) {
+        return new ParseLimits(timeout, maxTokens, maxNestingDepth, maxArguments, maxProblems);
+    }
+}
@@ -0,0 +1,37 @@
+package mylang;
+
+import mylang.ast.ConditionExpression;
+import mylang.ast.Name;
+import mylang.ast.Number;
+
+// Push-style callbacks fired by `Parser.parse(ParseListener)` as statements are recognised. Events are only fired
+// for statements that parse successfully, except for if statements: their body is streamed while it is being
+// parsed, so every `enterIf()` is closed by either `exitIf()` or, if the statement turns out to be broken,
+// `discardIf()`. Consumers that keep state per if statement must drop whatever they collected since the matching
+// `enterIf()` in that case.
+//
+// Callbacks that complete a node are handed its span in the source, see `Span`.
+//
+// Every callback is a no-op by default.
+public interface ParseListener {
+    ParseListener NONE = new ParseListener() {};
+
+    default void enterIf() {}
+
+    // Fired right after `enterIf()`.
+    default void condition(ConditionExpression condition) {}
+
+    default void exitIf(long span) {}
+
+    default void discardIf() {}
+
+    default void declaration(Name name, Number number, long span) {}
+
+    // Followed by one `argument()` per argument and then `exitCall()`.
+    default void call(Name name) {}
+
+    // Either a `Name` or a `Number`.
+    default void argument(Object argument) {}
+
+    default void exitCall(long span) {}
+}
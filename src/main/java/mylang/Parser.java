@@ -2,38 +2,183 @@ package mylang;
 
 import mylang.ast.*;
 import mylang.ast.Number;
+import mylang.metrics.CompilerMetrics;
+import mylang.metrics.Phase;
 import mylang.tokeniser.Token;
+import mylang.tokeniser.TokenFeed;
 import mylang.tokeniser.Tokenizer;
 import mylang.tokeniser.Type;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Parser {
     private final Tokenizer tokenizer;
     private final ErrorManager errorManager;
+    private final CompilerMetrics metrics;
+    private final List<Node> arguments = new ArrayList<>();
+    private ParseListener listener = ParseListener.NONE;
+    private ParseLimits limits = ParseLimits.DEFAULT;
+    // Replaced for every program, so that cancelling a finished parse can't affect the next one.
+    private Governor governor;
+    private AstInterner interner;
+    // The next token in the innermost if body being parsed.
+    private Token bodyToken;
+    // Where each open if statement starts, innermost last. Grows with the nesting depth and is reused.
+    private int[] ifStarts = new int[16];
+    // Where the if header parsed last starts.
+    private int ifStart;
+    private boolean hasSource;
+    // Bumped by every `reset()`, so that statement iterators notice the parser moved on.
+    private int resets;
+    // Whether `parseStatements()` may find more statements.
+    private boolean moreStatements;
+    private CharSequence source;
+    // Shared by the results and problems of the program. Frozen before a result is handed out, since results
+    // outlive the parse and the caller may reuse a mutable source for the next program.
+    private SourceIndex sourceIndex;
+    // Set while a parse is running, so that pools don't hand out a parser that's already in use. An async parse
+    // sets it on the caller's thread and clears it on the worker's.
+    volatile boolean busy;
+    // Completes once the worker of the latest async parse has let go of the parser.
+    private volatile CompletableFuture<Void> idle = CompletableFuture.completedFuture(null);
+
+    public static final int DEFAULT_MAX_NESTING_DEPTH = 1 << 16;
+
+    private enum Step {
+        // The statement was parsed completely.
+        DONE,
+        // An if header was parsed and its body is up next.
+        OPENED_IF
+    }
 
     public Parser(String source) {
-        var maybeTokeniser = Tokenizer.getInstance(source);
-        if (maybeTokeniser.failure())
-            // FIXME: Temporary...find a better way to handle errors.
-            throw new RuntimeException(maybeTokeniser.message());
-        tokenizer = maybeTokeniser.get();
+        this(source, CompilerMetrics.NONE);
+    }
+
+    public Parser(String source, CompilerMetrics metrics) {
+        this(metrics);
+        reset(source);
+    }
+
+    private Parser(CompilerMetrics metrics) {
+        this.metrics = metrics;
+        tokenizer = Tokenizer.getInstance(metrics);
         errorManager = tokenizer.errorManager();
     }
 
-    private Signal<Object> tryParseNameOrNumber() {
+    // A parser with nothing to parse yet. Hand it a program with `reset()`.
+    public Parser() {
+        this(CompilerMetrics.NONE);
+    }
+
+    // Makes the parser ready for another program, reusing the tokenizer, its buffers and the problem storage.
+    // Results of earlier parses are not affected.
+    public void reset(CharSequence source) {
+        reset(source, null);
+    }
+
+    // Same as `reset(CharSequence)`, but takes the tokens from `tokens` instead of lexing them, see
+    // `ParallelLexer` and `TokenRing`. Null means lexing as usual.
+    public void reset(CharSequence source, TokenFeed tokens) {
+        if (busy)
+            throw new RuntimeException("Parser is busy!");
+        long start = metrics == CompilerMetrics.NONE ? 0 : System.nanoTime();
+        var result = tokens == null ? tokenizer.reset(source) : tokenizer.reset(source, tokens);
+        if (result.failure())
+            // FIXME: Temporary...find a better way to handle errors.
+            throw new RuntimeException(result.message());
+        this.source = source;
+        sourceIndex = new SourceIndex(source);
+        errorManager.setSourceIndex(sourceIndex);
+        governor = new Governor();
+        tokenizer.setGovernor(governor);
+        arguments.clear();
+        bodyToken = null;
+        hasSource = true;
+        resets++;
+        if (metrics != CompilerMetrics.NONE)
+            metrics.phaseCompleted(Phase.INIT, System.nanoTime() - start);
+    }
+
+    // Drops the program and everything the parser still holds of it, for parsers that are kept around idle. See
+    // `Tokenizer.release()` for `maxRetainedBytes`.
+    void release(int maxRetainedBytes) {
+        if (busy)
+            throw new RuntimeException("Parser is busy!");
+        tokenizer.release(maxRetainedBytes);
+        source = null;
+        sourceIndex = null;
+        hasSource = false;
+        arguments.clear();
+        bodyToken = null;
+        resets++;
+    }
+
+    // Programs nesting if statements deeper than this fail with a problem instead of being parsed.
+    public void setMaxNestingDepth(int maxNestingDepth) {
+        if (maxNestingDepth < 1)
+            throw new RuntimeException("Nesting depth limit must be positive!");
+        limits = limits.withMaxNestingDepth(maxNestingDepth);
+    }
+
+    // Applies to parses started from now on.
+    public void setLimits(ParseLimits limits) {
+        this.limits = Objects.requireNonNull(limits);
+    }
+
+    public ParseLimits limits() {
+        return limits;
+    }
+
+    // Makes `parse()` share structurally equal nodes through `interner`, see `AstInterner`. Pass null to go back to
+    // building every node afresh, with its span.
+    public void setInterner(AstInterner interner) {
+        this.interner = interner;
+    }
+
+    private long eatenTokenSpan() {
+        return Span.of(tokenizer.eatenTokenStart(), tokenizer.eatenTokenEnd());
+    }
+
+    private Signal<Number> toNumber(Token token) {
+        try {
+            return Signal.of(new Number(Integer.valueOf(token.value()), eatenTokenSpan()));
+        } catch (NumberFormatException e) {
+            return Signal.fail(String.format("Number `%s` is out of range", token.value()));
+        }
+    }
+
+    // Yields either a `Name` or a `Number`.
+    private Signal<Node> tryParseNameOrNumber() {
         var result = tokenizer.eatAndMatch(Type.NAME, Type.NUMBER);
         if (result.failure())
             return Signal.fail(result.message());
-        return Signal.of(result.get());
+        var token = result.get();
+        if (token.type() == Type.NAME)
+            return Signal.of(new Name(token.value(), eatenTokenSpan()));
+        var numberResult = toNumber(token);
+        if (numberResult.failure())
+            return Signal.fail(numberResult.message());
+        return Signal.of(numberResult.get());
     }
 
     private Signal<Operator> tryParseOperator() {
         var result = tokenizer.eatAndMatch(Type.OPERATOR);
         if (result.failure())
             return Signal.fail(result.message());
-        var operator = new Operator(result.get().value());
+        var operator = new Operator(result.get().value(), eatenTokenSpan());
         return Signal.of(operator);
     }
 
@@ -56,12 +201,17 @@ public class Parser {
         if (rhsResult.failure())
             return Signal.fail(rhsResult.message());
 
-        var conditionExpr = new ConditionExpression(lhsResult.get(), rhsResult.get(), operator);
+        var lhs = lhsResult.get();
+        var rhs = rhsResult.get();
+        var conditionExpr = new ConditionExpression(lhs, rhs, operator, Span.cover(lhs.span(), rhs.span()));
         return Signal.of(conditionExpr);
     }
 
-    private Signal<Statement> tryParseIfStatement() {
+    // Parses the if header up to and including `{`. The body is driven by `tryParseStatement()`. On success, the
+    // first token of the body is left in `bodyToken`.
+    private Signal<Step> tryParseIfHeader() {
         tokenizer.eatToken(); // "if"
+        int start = tokenizer.eatenTokenStart();
 
         var condResult = tryParseConditionExpression();
         if (condResult.failure())
@@ -75,44 +225,21 @@ public class Parser {
         if (nextTokenResult.failure())
             return Signal.fail(nextTokenResult.message());
 
-        List<Statement> statementList = new ArrayList<>();
-        while (nextTokenResult.get().type() != Type.RBRACE) {
-            var nextStmtResult = tryParseNextStatement();
-            if (nextStmtResult.failure()) {
-                if (!errorManager.emitSyntaxError(nextStmtResult.message()))
-                    // Cannot recover from this error.
-                    return Signal.fail(nextStmtResult.message());
-
-                // Advance the line in the hope of seeing a new statement on the next line. Ideally, we would
-                // skip chars until we see one that marks the beginning of a new statement. But for now, this will do.
-                var advLineResult = tokenizer.advanceLine();
-                if (advLineResult.failure()) {
-                    // Cannot recover from this error.
-                    errorManager.emitFatalError(advLineResult.message());
-                    return Signal.fail(advLineResult.message());
-                }
-            } else {
-                statementList.add(nextStmtResult.get());
-            }
-
-            nextTokenResult = tokenizer.peekToken();
-            if (nextTokenResult.failure()) {
-                // Cannot recover from this error.
-                errorManager.emitFatalError(nextTokenResult.message());
-                return Signal.fail(nextTokenResult.message());
-            }
-        }
-
-        tokenizer.eatToken(); // "}"
-        return Signal.of(new IfStatement(condResult.get(), statementList));
+        listener.enterIf();
+        listener.condition(condResult.get());
+        bodyToken = nextTokenResult.get();
+        ifStart = start;
+        return Signal.of(Step.OPENED_IF);
     }
 
-    private Signal<Statement> tryParseDeclarationStatement() {
+    private Signal<Void> tryParseDeclarationStatement() {
         tokenizer.eatToken(); // "val"
+        int start = tokenizer.eatenTokenStart();
 
         var nameResult = tokenizer.eatAndMatch(Type.NAME);
         if (nameResult.failure())
             return Signal.fail(nameResult.message());
+        var name = new Name(nameResult.get().value(), eatenTokenSpan());
 
         var opResult = tokenizer.eatAndMatch("=");
         if (opResult.failure())
@@ -122,13 +249,19 @@ public class Parser {
         if (numberResult.failure())
             return Signal.fail(numberResult.message());
 
-        var name = new Name(nameResult.get().value());
-        var number = new Number(Integer.valueOf(numberResult.get().value()));
-        return Signal.of(new DeclarationStatement(name, number));
+        var numberSpan = eatenTokenSpan();
+        var number = toNumber(numberResult.get());
+        if (number.failure())
+            return Signal.fail(number.message());
+        listener.declaration(name, number.get(), Span.of(start, Span.end(numberSpan)));
+        return Signal.of(null);
     }
 
-    private Signal<List<Object>> tryParseArgumentList() {
-        var list = new ArrayList<>();
+    // Collects into `arguments`, which is reused across calls. Arguments are only handed to the listener once the
+    // whole call has parsed.
+    private Signal<Void> tryParseArgumentList() {
+        var list = arguments;
+        list.clear();
 
         var lparenResult = tokenizer.eatAndMatch(Type.LPAREN);
         if (lparenResult.failure())
@@ -161,30 +294,38 @@ public class Parser {
             }
 
             list.add(nameOrNumberResult.get());
+            if (list.size() > limits.maxArguments()) {
+                errorManager.abort("Argument count exceeds the limit of %d", limits.maxArguments());
+                return Signal.fail(errorManager.abortReason());
+            }
             nextTokenResult = tokenizer.peekToken();
             if (nextTokenResult.failure())
                 return Signal.fail(nextTokenResult.message());
         }
 
         tokenizer.eatToken(); // ")"
-        return Signal.of(list);
+        return Signal.of(null);
     }
 
-    private Signal<Statement> tryParseFunctionCallStatement() {
+    private Signal<Void> tryParseFunctionCallStatement() {
         var nameResult = tokenizer.eatAndMatch(Type.NAME);
         if (nameResult.failure())
             return Signal.fail(nameResult.message());
+        var name = new Name(nameResult.get().value(), eatenTokenSpan());
 
         var argListResult = tryParseArgumentList();
         if (argListResult.failure())
             return Signal.fail(argListResult.message());
 
-        var name = new Name(nameResult.get().value());
-        var arguments = argListResult.get();
-        return Signal.of(new FunctionCallStatement(name, arguments));
+        listener.call(name);
+        for (var argument : arguments)
+            listener.argument(argument);
+        // The argument list leaves `)` as the token eaten last.
+        listener.exitCall(Span.of(name.start(), tokenizer.eatenTokenEnd()));
+        return Signal.of(null);
     }
 
-    private Signal<Statement> tryParseNextStatement() {
+    private Signal<Step> tryStartNextStatement() {
         if (!errorManager.canRecover())
             return Signal.fail("");
 
@@ -194,12 +335,12 @@ public class Parser {
 
         var nextToken = nextTokenResult.get();
         if (nextToken.type() == Type.NAME)
-            return tryParseFunctionCallStatement();
+            return done(tryParseFunctionCallStatement());
 
         var tokenVal = nextToken.value();
         return switch (tokenVal) {
-            case "if" -> tryParseIfStatement();
-            case "val" -> tryParseDeclarationStatement();
+            case "if" -> tryParseIfHeader();
+            case "val" -> done(tryParseDeclarationStatement());
             default -> {
                 errorManager.emitSyntaxError("Unexpected token `%s`", tokenVal);
                 yield Signal.fail("");
@@ -207,15 +348,312 @@ public class Parser {
         };
     }
 
+    private static Signal<Step> done(Signal<Void> result) {
+        if (result.failure())
+            return Signal.fail(result.message());
+        return Signal.of(Step.DONE);
+    }
+
+    // Parses one statement along with everything nested in it. If statements used to be parsed by recursing once
+    // per nesting level, which blew the stack on machine-generated programs. Instead, we keep a count of the open
+    // if bodies and drive them from this loop. Since the listener holds on to whatever it builds, the count is all
+    // the state we need per level.
+    //
+    // Each failure is handled exactly as the recursive version handled it: a broken statement is reported and
+    // skipped within the enclosing body, and a body that cannot carry on fails the if statement it belongs to,
+    // which in turn counts as a broken statement one level up.
+    private Signal<Void> tryParseStatement() {
+        int openIfs = 0;
+        var step = tryStartNextStatement();
+        while (true) {
+            if (step.success() && step.get() == Step.OPENED_IF) {
+                if (++openIfs > limits.maxNestingDepth()) {
+                    errorManager.abort("Nesting depth exceeds the limit of %d", limits.maxNestingDepth());
+                    step = failIf(errorManager.abortReason());
+                    openIfs--;
+                    continue;
+                }
+                if (openIfs > ifStarts.length)
+                    ifStarts = Arrays.copyOf(ifStarts, ifStarts.length * 2);
+                ifStarts[openIfs - 1] = ifStart;
+            } else {
+                if (step.success())
+                    metrics.statementParsed();
+                if (openIfs == 0)
+                    return step.success() ? Signal.of(null) : Signal.fail(step.message());
+
+                if (step.failure()) {
+                    if (!errorManager.emitSyntaxError(step.message())) {
+                        // Cannot recover from this error.
+                        step = failIf(step.message());
+                        openIfs--;
+                        continue;
+                    }
+
+                    // Advance the line in the hope of seeing a new statement on the next line. Ideally, we would
+                    // skip chars until we see one that marks the beginning of a new statement. But for now, this
+                    // will do.
+                    metrics.recoveryAttempted();
+                    var advLineResult = tokenizer.advanceLine();
+                    if (advLineResult.failure()) {
+                        // Cannot recover from this error.
+                        errorManager.emitFatalError(advLineResult.message());
+                        step = failIf(advLineResult.message());
+                        openIfs--;
+                        continue;
+                    }
+                }
+
+                var nextTokenResult = tokenizer.peekToken();
+                if (nextTokenResult.failure()) {
+                    // Cannot recover from this error.
+                    errorManager.emitFatalError(nextTokenResult.message());
+                    step = failIf(nextTokenResult.message());
+                    openIfs--;
+                    continue;
+                }
+                bodyToken = nextTokenResult.get();
+            }
+
+            // We're inside the innermost open if body, and `bodyToken` is what comes next in it.
+            if (bodyToken.type() == Type.RBRACE) {
+                tokenizer.eatToken(); // "}"
+                listener.exitIf(Span.of(ifStarts[openIfs - 1], tokenizer.eatenTokenEnd()));
+                step = Signal.of(Step.DONE);
+                openIfs--;
+            } else {
+                step = tryStartNextStatement();
+            }
+        }
+    }
+
+    private Signal<Step> failIf(String message) {
+        listener.discardIf();
+        return Signal.fail(message);
+    }
+
     public CompilationResult parse() {
+        claimSource();
+        return buildAst();
+    }
+
+    private CompilationResult buildAst() {
+        var builder = new AstBuilder(interner);
+        var result = run(builder);
+        if (result.failed())
+            return result;
+        return new CompilationResult(builder.root(), result.problems(), builder.root() == null, sourceIndex);
+    }
+
+    // Streams the program to `listener` instead of building an AST. Memory use doesn't grow with the size of
+    // if bodies. The returned result never has an AST root, but `failed()` still tells whether the top-level
+    // statement parsed.
+    public CompilationResult parse(ParseListener listener) {
+        claimSource();
+        return run(listener);
+    }
+
+    // Each program is parsed once. Parse it again after a `reset()`.
+    private void claimSource() {
+        if (busy)
+            throw new RuntimeException("Parser is busy!");
+        if (!hasSource)
+            throw new RuntimeException("Nothing to parse!");
+        hasSource = false;
+    }
+
+    private CompilationResult run(ParseListener listener) {
+        busy = true;
+        this.listener = listener;
+        governor.start(limits);
+        errorManager.setMaxProblems(limits.maxProblems());
+        try {
+            if (metrics == CompilerMetrics.NONE)
+                return parseProgram();
+
+            metrics.compilationStarted();
+            long start = System.nanoTime();
+            var result = parseProgram();
+            metrics.phaseCompleted(Phase.PARSE, System.nanoTime() - start);
+            metrics.compilationFinished(result.failed());
+            return result;
+        } finally {
+            // A parse that stopped early shouldn't keep a lexer busy.
+            tokenizer.stopReplay();
+            this.listener = ParseListener.NONE;
+            busy = false;
+        }
+    }
+
+    // Parses on the common pool. See `parseAsync(ParseListener, Executor)`.
+    public CompletableFuture<CompilationResult> parseAsync() {
+        return parseAsync(ForkJoinPool.commonPool());
+    }
+
+    public CompletableFuture<CompilationResult> parseAsync(Executor executor) {
+        return parseAsync(null, executor);
+    }
+
+    // Runs the parse on `executor`, building the AST unless a listener is given. Cancelling the future stops the
+    // parse at its next token. Limits set with `setLimits()` are enforced as usual, so a timeout shows up as a
+    // problem in the result rather than failing the future.
+    //
+    // A cancelled future completes right away, while the worker may still be using the parser and the listener
+    // until it reaches that next token. Wait for `idle()` before touching either again. Until then, `reset()` and
+    // the parse methods fail.
+    public CompletableFuture<CompilationResult> parseAsync(ParseListener listener, Executor executor) {
+        claimSource();
+        busy = true;
+        var idle = new CompletableFuture<Void>();
+        this.idle = idle;
+
+        var governor = this.governor;
+        var future = new CompletableFuture<CompilationResult>();
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled())
+                governor.cancel();
+        });
+        try {
+            executor.execute(() -> {
+                try {
+                    if (future.isDone()) {
+                        // Cancelled before it started, so nothing else will let go of a token feed.
+                        tokenizer.stopReplay();
+                        return;
+                    }
+                    future.complete(listener == null ? buildAst() : run(listener));
+                } catch (RuntimeException | Error e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    busy = false;
+                    idle.complete(null);
+                }
+            });
+        } catch (RuntimeException e) {
+            // The executor turned the task down, so the program is still there to be parsed.
+            hasSource = true;
+            busy = false;
+            idle.complete(null);
+            throw e;
+        }
+        return future;
+    }
+
+    // Completes once no async parse is using the parser any more, which may be after its future was cancelled.
+    public CompletableFuture<Void> idle() {
+        return idle;
+    }
+
+    // Checks the program for problems without building anything.
+    public CompilationResult validate() {
+        return parse(ParseListener.NONE);
+    }
+
+    // Parses a program made of any number of top-level statements, each only once it's pulled from the iterator.
+    // Every statement comes as a result of its own, along with the problems found in it. A broken one has no root
+    // and is skipped up to the next line, the same way as in an if body, so the iteration carries on unless nothing
+    // can recover. Only the statement being parsed is held on to, so the ASTs and problems kept don't grow with the
+    // number of statements, and whatever isn't pulled isn't parsed, lexed or narrowed. Each result indexes a copy of
+    // just the lines its statement touched, rather than the whole source.
+    //
+    // Memory use isn't quite constant, though: the tokenizer's byte copy of the source grows with how far the
+    // iteration got, since offsets into it are those of the whole source.
+    //
+    // Limits apply to each statement on its own. Don't use the parser for anything else while iterating.
+    public Iterator<CompilationResult> parseStatements() {
+        claimSource();
+        moreStatements = true;
+        int resets = this.resets;
+
+        return new Iterator<>() {
+            private CompilationResult next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !done) {
+                    if (resets != Parser.this.resets)
+                        throw new RuntimeException("Parser was reset while iterating!");
+                    next = parseNextStatement();
+                    done = next == null;
+                }
+                return next != null;
+            }
+
+            @Override
+            public CompilationResult next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                var result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    // Same as `parseStatements()`, as a sequential stream.
+    public Stream<CompilationResult> streamStatements() {
+        var spliterator = Spliterators.spliteratorUnknownSize(parseStatements(),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(tokenizer::stopReplay);
+    }
+
+    // Null once there are no statements left.
+    private CompilationResult parseNextStatement() {
+        if (!moreStatements || errorManager.aborted() || !errorManager.canRecover() || tokenizer.atEndOfInput()) {
+            tokenizer.stopReplay();
+            return null;
+        }
+
+        var builder = new AstBuilder(interner);
+        // The statement starts on this line or a later one.
+        var index = new SourceIndex(source, tokenizer.lineBeginOffset(), tokenizer.lineNumber());
+        errorManager.setSourceIndex(index);
+        busy = true;
+        listener = builder;
+        governor.start(limits);
+        errorManager.setMaxProblems(limits.maxProblems());
+        try {
+            if (metrics != CompilerMetrics.NONE)
+                metrics.compilationStarted();
+            long start = metrics == CompilerMetrics.NONE ? 0 : System.nanoTime();
+            var stmtResult = tryParseStatement();
+            if (stmtResult.failure() && errorManager.emitSyntaxError(stmtResult.message())) {
+                // Skip the line of the bad token, which may lie past the cursor when it was only peeked at. Failing
+                // to advance means the rest of the last line is broken too.
+                metrics.recoveryAttempted();
+                if (tokenizer.skipTokenLine().failure())
+                    moreStatements = false;
+            }
+
+            var root = stmtResult.success() ? builder.root() : null;
+            if (metrics != CompilerMetrics.NONE) {
+                metrics.phaseCompleted(Phase.PARSE, System.nanoTime() - start);
+                metrics.compilationFinished(root == null);
+            }
+            // Neither the problems nor the AST refer to anything past the lines looked at.
+            index.freeze(tokenizer.lookedAtEnd());
+            return new CompilationResult(root, errorManager.takeProblems(), root == null, index);
+        } finally {
+            listener = ParseListener.NONE;
+            busy = false;
+        }
+    }
+
+    private SourceIndex frozenSourceIndex() {
+        sourceIndex.freeze(source.length());
+        return sourceIndex;
+    }
+
+    private CompilationResult parseProgram() {
         // As per the grammar, only one top-level statement is allowed per program.
-        var stmtResult = tryParseNextStatement();
+        var stmtResult = tryParseStatement();
         if (stmtResult.failure()) {
             var message = stmtResult.message();
             errorManager.emitFatalError(message);
-            return new CompilationResult(null, errorManager.problems());
+            return new CompilationResult(null, errorManager.problems(), true, frozenSourceIndex());
         }
 
-        return new CompilationResult(stmtResult.get(), errorManager.problems());
+        return new CompilationResult(null, errorManager.problems(), false, frozenSourceIndex());
     }
 }
@@ -0,0 +1,45 @@
+package mylang;
+
+import java.util.function.Function;
+
+// Keeps one parser per thread for services that compile lots of small programs. Reusing the parser saves
+// rebuilding the tokenizer, its state and the problem storage for every program, so a steady-state compile
+// allocates little besides the tokens and the resulting AST.
+//
+// Pool threads live long, so a pooled parser lets go of its program once the parse is done. It only keeps its byte
+// buffer for the next program if that's no bigger than `MAX_RETAINED_BYTES`, so one huge program doesn't leave a
+// huge buffer behind on every thread that ever parsed it.
+//
+// If a parse is started from within another parse on the same thread (say, from a listener), a throwaway parser
+// is used for the inner one.
+public class ParserPool {
+    private static final ThreadLocal<Parser> PARSERS = ThreadLocal.withInitial(Parser::new);
+
+    static final int MAX_RETAINED_BYTES = 64 * 1024;
+
+    private ParserPool() {}
+
+    private static CompilationResult run(CharSequence source, Function<Parser, CompilationResult> parse) {
+        var parser = PARSERS.get();
+        if (parser.busy)
+            parser = new Parser();
+        parser.reset(source);
+        try {
+            return parse.apply(parser);
+        } finally {
+            parser.release(MAX_RETAINED_BYTES);
+        }
+    }
+
+    public static CompilationResult parse(CharSequence source) {
+        return run(source, Parser::parse);
+    }
+
+    public static CompilationResult parse(CharSequence source, ParseListener listener) {
+        return run(source, parser -> parser.parse(listener));
+    }
+
+    public static CompilationResult validate(CharSequence source) {
+        return run(source, Parser::validate);
+    }
+}
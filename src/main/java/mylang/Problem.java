@@ -1,25 +1,51 @@
 package mylang;
 
-import mylang.tokeniser.Tokenizer;
-
+// A problem only remembers where it happened: the offset its line starts at and the column, along with the source
+// index of its program, which it shares with every other problem and node of the same result. The line number, its
+// text and the pretty error are only worked out when somebody asks for them, so reporting lots of problems doesn't
+// mean copying lots of source lines around.
+//
+// The column may lie past the end of its line when the problem is about whatever comes after it. That's why it's
+// kept apart from the line's offset, rather than as one offset that could run into the next line.
 public class Problem {
-    private final int lineNumber;
+    // Null without a position.
+    private final SourceIndex index;
+    private final int lineBegin;
     private final int column;
-    private final String line;
     private final String description;
     private String decorated;
 
-    public Problem(Tokenizer.State state, String description) {
-        if (state == null || description == null || description.isEmpty())
+    // A problem at the given offset of the indexed source.
+    public Problem(SourceIndex index, int offset, String description) {
+        if (index == null || description == null || description.isEmpty())
+            throw new RuntimeException("Invalid state");
+        this.index = index;
+        this.lineBegin = index.lineStart(index.line(offset));
+        this.column = offset - lineBegin + 1;
+        this.description = description;
+    }
+
+    // A problem on the line starting at `lineBegin`, at the 1-indexed `column`.
+    Problem(String description, SourceIndex index, int lineBegin, int column) {
+        if (index == null || description == null || description.isEmpty())
+            throw new RuntimeException("Invalid state");
+        this.index = index;
+        this.lineBegin = lineBegin;
+        this.column = column;
+        this.description = description;
+    }
+
+    // A problem that can't be pinned to a place in the source. It has no line, column or offset.
+    public Problem(String description) {
+        if (description == null || description.isEmpty())
             throw new RuntimeException("Invalid state");
-        this.lineNumber = state.lineNumber();
-        this.column = state.lastTokenBegin();
-        this.line = state.currentLine();
+        this.index = null;
+        this.lineBegin = -1;
+        this.column = 0;
         this.description = description;
-        decorate();
     }
 
-    private String generatePrettyError() {
+    private String generatePrettyError(String line) {
         var builder = new StringBuilder("\t").append(line).append("\n");
         builder.append("\t");
         builder.append(" ".repeat(Math.max(0, column - 1)));
@@ -27,29 +53,47 @@ public class Problem {
         return builder.toString();
     }
 
-    private void decorate() {
+    private String decorate() {
+        if (!hasPosition())
+            return description + "\n";
+        int lineNumber = line();
+        var line = index.lineText(lineNumber);
         var builder = new StringBuilder(description);
         builder.append(" @(Line=").append(lineNumber).append(", Column=").append(column).append(")\n");
         if (column <= line.length()) {
-            var prettyError = generatePrettyError();
+            var prettyError = generatePrettyError(line);
             builder.append(prettyError);
         }
-        decorated = builder.toString();
+        return builder.toString();
     }
 
     public String description() {
         return description;
     }
 
+    public boolean hasPosition() {
+        return index != null;
+    }
+
+    // 0 without a position, like `column()`.
     public int line() {
-        return lineNumber;
+        return hasPosition() ? index.line(lineBegin) : 0;
     }
 
     public int column() {
         return column;
     }
 
+    // Offset in the source that the column points at. -1 without a position.
+    public int offset() {
+        return hasPosition() ? lineBegin + column - 1 : -1;
+    }
+
     public String prettyError() {
-        return decorated;
+        // Racing threads would just build the same string twice.
+        var pretty = decorated;
+        if (pretty == null)
+            decorated = pretty = decorate();
+        return pretty;
     }
 }
@@ -0,0 +1,227 @@
+package mylang;
+
+import mylang.ast.Statement;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+// Holds the current version of named programs for services that evaluate them on many threads while recompiling
+// them on others.
+//
+// Programs live in an immutable snapshot that's replaced as a whole on every change, so readers only do a volatile
+// read and never see a half-updated registry. Reading goes through a per-thread `Reader`:
+//
+//   try (var reader = registry.read()) {
+//       var program = reader.get("rule");
+//       ...
+//   }
+//
+// While open, a reader pins the snapshot it sees with a write to a field of its own, so there's no shared counter
+// for threads to contend on. Programs replaced or removed since are retired, handed to the retire callback, only
+// once no reader is pinned to a snapshot that still has them. Retirement is checked whenever the registry changes,
+// and by `reclaim()`.
+//
+// Readers of threads that have died are dropped when the next thread registers or retirement is checked, so thread
+// churn doesn't pile them up.
+//
+// Compiling happens before the swap and outside of any lock. Writers do serialize on the swap itself, which only
+// copies the map of programs. Readers never wait for writers.
+public class ProgramRegistry {
+    public record Program(String name, long version, CompilationResult result) {
+        public Statement root() {
+            return result.astRoot();
+        }
+    }
+
+    public record Snapshot(long version, Map<String, Program> programs) {
+        public Program get(String name) {
+            return programs.get(name);
+        }
+    }
+
+    // Swap times cover waiting for other writers, copying the snapshot and retiring what's due.
+    public record Stats(long version, int programs, long swaps, long rejected, long retired, int pending,
+                        long totalSwapNanos, long maxSwapNanos) {}
+
+    // Static, so the thread local holding it doesn't keep the registry alive.
+    public static final class Reader implements AutoCloseable {
+        // The version of the pinned snapshot, 0 when closed.
+        private volatile long pinned;
+        private Snapshot snapshot;
+        private int depth;
+        private final WeakReference<Thread> owner = new WeakReference<>(Thread.currentThread());
+
+        private Reader() {}
+
+        private boolean orphaned() {
+            var thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+
+        public Snapshot snapshot() {
+            if (depth == 0)
+                throw new RuntimeException("Reader is closed!");
+            return snapshot;
+        }
+
+        public Program get(String name) {
+            return snapshot().get(name);
+        }
+
+        @Override
+        public void close() {
+            if (depth == 0)
+                throw new RuntimeException("Reader is closed!");
+            if (--depth == 0) {
+                snapshot = null;
+                pinned = 0;
+            }
+        }
+    }
+
+    private record Retiree(Program program, long until) {}
+
+    private volatile Snapshot current = new Snapshot(1, Map.of());
+    private final ThreadLocal<Reader> readers = ThreadLocal.withInitial(this::register);
+    private final Queue<Reader> allReaders = new ConcurrentLinkedQueue<>();
+    private final Consumer<Program> onRetire;
+
+    // Guarded by `this`.
+    private final List<Retiree> pending = new ArrayList<>();
+    private long swaps, rejected, retired, totalSwapNanos, maxSwapNanos;
+
+    public ProgramRegistry() {
+        this(program -> {});
+    }
+
+    public ProgramRegistry(Consumer<Program> onRetire) {
+        this.onRetire = onRetire;
+    }
+
+    private Reader register() {
+        allReaders.removeIf(Reader::orphaned);
+        var reader = new Reader();
+        allReaders.add(reader);
+        return reader;
+    }
+
+    int readers() {
+        return allReaders.size();
+    }
+
+    // Pins the current snapshot for the calling thread until the reader is closed. Nested reads on the same thread
+    // share the outermost one's snapshot.
+    public Reader read() {
+        var reader = readers.get();
+        if (reader.depth++ == 0) {
+            var snapshot = current;
+            reader.pinned = snapshot.version;
+            // A writer may have swapped and looked for pins in between, so check the pin is still on the current
+            // snapshot. Pinning a newer one is always safe.
+            while (current != snapshot) {
+                snapshot = current;
+                reader.pinned = snapshot.version;
+            }
+            reader.snapshot = snapshot;
+        }
+        return reader;
+    }
+
+    // The current snapshot, without pinning. Fine as long as retirement doesn't matter to the caller.
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    // Compiles `source` and publishes it under `name`. If the compilation fails, the registry is left as is.
+    public CompilationResult publish(String name, CharSequence source) {
+        var result = ParserPool.parse(source);
+        publish(name, result);
+        return result;
+    }
+
+    // Returns whether the result was published, failed compilations are not.
+    public boolean publish(String name, CompilationResult result) {
+        if (result.failed()) {
+            synchronized (this) {
+                rejected++;
+            }
+            return false;
+        }
+        swap(name, result);
+        return true;
+    }
+
+    // Returns whether there was a program to remove.
+    public boolean remove(String name) {
+        return swap(name, null);
+    }
+
+    private boolean swap(String name, CompilationResult result) {
+        long start = System.nanoTime();
+        synchronized (this) {
+            var snapshot = current;
+            if (result == null && !snapshot.programs.containsKey(name))
+                return false;
+
+            long version = snapshot.version + 1;
+            var programs = new HashMap<>(snapshot.programs);
+            var old = result == null ? programs.remove(name) : programs.put(name, new Program(name, version, result));
+            current = new Snapshot(version, Collections.unmodifiableMap(programs));
+            if (old != null)
+                pending.add(new Retiree(old, version));
+            retire();
+
+            long nanos = System.nanoTime() - start;
+            swaps++;
+            totalSwapNanos += nanos;
+            maxSwapNanos = Math.max(maxSwapNanos, nanos);
+        }
+        return true;
+    }
+
+    // Retires whatever no reader can see anymore. Returns the number of programs retired.
+    public synchronized int reclaim() {
+        return retire();
+    }
+
+    private int retire() {
+        long oldest = Long.MAX_VALUE;
+        for (var it = allReaders.iterator(); it.hasNext(); ) {
+            var reader = it.next();
+            // Nobody reads through a dead thread's reader anymore, even if it was left open.
+            if (reader.orphaned()) {
+                it.remove();
+                continue;
+            }
+            long pinned = reader.pinned;
+            if (pinned != 0)
+                oldest = Math.min(oldest, pinned);
+        }
+
+        int count = 0;
+        for (var it = pending.iterator(); it.hasNext(); ) {
+            var retiree = it.next();
+            // Snapshots from `until` on don't have the program anymore.
+            if (retiree.until <= oldest) {
+                it.remove();
+                onRetire.accept(retiree.program);
+                count++;
+            }
+        }
+        retired += count;
+        return count;
+    }
+
+    public synchronized Stats stats() {
+        var snapshot = current;
+        return new Stats(snapshot.version, snapshot.programs.size(), swaps, rejected, retired, pending.size(),
+                totalSwapNanos, maxSwapNanos);
+    }
+}
@@ -1,6 +1,9 @@
 package mylang;
 
 public class Signal<T> {
+    // Signals are immutable, so every empty success can be the same object.
+    private static final Signal<?> EMPTY = new Signal<>(null, true, "");
+
     private final T value;
     private final boolean success;
     private final String message;
@@ -30,7 +33,10 @@ public class Signal<T> {
         return value;
     }
 
+    @SuppressWarnings("unchecked")
     public static <T> Signal<T> of(T object) {
+        if (object == null)
+            return (Signal<T>) EMPTY;
         return new Signal<>(object, true, "");
     }
 
@@ -0,0 +1,111 @@
+package mylang;
+
+import java.util.Arrays;
+
+// Maps source offsets to lines and columns. Holds nothing but the offset each line starts at, so one index can be
+// shared by every node and problem of a program, and each lookup is a binary search. Lines are only indexed as far
+// as lookups have needed so far.
+//
+// An index may cover just a part of a program, starting at a line other than the first, as it does for the results
+// of `Parser.parseStatements()`. Offsets and lines are those of the whole program either way.
+//
+// While the parser is still running, the index reads from the caller's source. Before the result is handed out,
+// the parser swaps that for an immutable copy of the part the result covers, see `freeze()`, so that problems and
+// results neither change when the caller reuses the source nor keep more of it alive than they point into.
+public class SourceIndex {
+    private CharSequence text;
+    // Offset of `text`'s first char in the program.
+    private int textStart;
+    // Where the part covered starts and ends.
+    private final int start;
+    private int end;
+    private final int firstLine;
+    private int[] lineStarts = new int[16];
+    private int lineCount = 1;
+    // Every line start before this offset is in `lineStarts`.
+    private int scanned;
+
+    public SourceIndex(CharSequence source) {
+        this(source, 0, 1);
+    }
+
+    // Covers `source` from `start`, which begins line `firstLine`.
+    SourceIndex(CharSequence source, int start, int firstLine) {
+        text = source;
+        this.start = start;
+        end = source.length();
+        this.firstLine = firstLine;
+        lineStarts[0] = start;
+        scanned = start;
+    }
+
+    // Stops covering anything past `end` and lets go of the caller's source, keeping a copy of the part covered.
+    synchronized void freeze(int end) {
+        if (textStart == start && this.end == end && text instanceof String)
+            return;
+        text = text.subSequence(start - textStart, end - textStart).toString();
+        textStart = start;
+        this.end = end;
+        if (scanned > end) {
+            while (lineStarts[lineCount - 1] > end)
+                lineCount--;
+            scanned = end;
+        }
+    }
+
+    // Indexes the lines that start at or before `offset`.
+    private void scanTo(int offset) {
+        var text = this.text;
+        for (int limit = Math.min(offset, end); scanned < limit; scanned++) {
+            if (text.charAt(scanned - textStart) != '\n')
+                continue;
+            if (lineCount == lineStarts.length)
+                lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+            lineStarts[lineCount++] = scanned + 1;
+        }
+    }
+
+    public synchronized int lineCount() {
+        scanTo(end);
+        return firstLine - 1 + lineCount;
+    }
+
+    // 1-indexed, like the lines of a `Problem`.
+    public synchronized int line(int offset) {
+        if (offset < start || offset > end)
+            throw new RuntimeException("Offset out of bounds: " + offset);
+        scanTo(offset);
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        // A miss yields where the offset would be inserted, which is one past the line it belongs to.
+        return firstLine - 1 + (index >= 0 ? index + 1 : -index - 1);
+    }
+
+    // 1-indexed, like the columns of a `Problem`.
+    public synchronized int column(int offset) {
+        return offset - lineStart(line(offset)) + 1;
+    }
+
+    public synchronized int lineStart(int line) {
+        return lineStarts[indexOf(line)];
+    }
+
+    // The line's text, without the line break.
+    public synchronized String lineText(int line) {
+        int index = indexOf(line);
+        int lineStart = lineStarts[index];
+        int lineEnd = lineStart;
+        var text = this.text;
+        while (lineEnd < end && text.charAt(lineEnd - textStart) != '\n')
+            lineEnd++;
+        return text.subSequence(lineStart - textStart, lineEnd - textStart).toString();
+    }
+
+    private int indexOf(int line) {
+        int index = line - firstLine;
+        while (index >= lineCount && scanned < end)
+            scanTo(scanned + 1);
+        if (index < 0 || index >= lineCount)
+            throw new RuntimeException("No such line: " + line);
+        return index;
+    }
+}
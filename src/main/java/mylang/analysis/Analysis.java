@@ -0,0 +1,33 @@
+package mylang.analysis;
+
+import mylang.ast.*;
+
+import java.util.Set;
+
+// A check over the AST. Rather than walking the tree itself, an analysis says which kinds of nodes it wants to
+// see and gets called back for them by `PassManager`, which runs every analysis in the same walk.
+//
+// Callbacks only fire for the kinds listed by `kinds()`, except for `finish()`, which always does.
+public interface Analysis {
+    Set<NodeKind> kinds();
+
+    // Before the condition and the body. `IF`.
+    default void enterIf(IfStatement node, AnalysisContext context) {}
+
+    // After the body, with the body's scope still in place. `IF`.
+    default void exitIf(IfStatement node, AnalysisContext context) {}
+
+    default void condition(ConditionExpression node, AnalysisContext context) {}
+
+    // Before the name is bound, so the scope still shows what it shadows.
+    default void declaration(DeclarationStatement node, AnalysisContext context) {}
+
+    // Before its arguments.
+    default void call(FunctionCallStatement node, AnalysisContext context) {}
+
+    // Before the use is counted in its binding.
+    default void name(Name node, AnalysisContext context) {}
+
+    // After the walk, with the top-level scope still in place.
+    default void finish(AnalysisContext context) {}
+}
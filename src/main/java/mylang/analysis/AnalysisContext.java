@@ -0,0 +1,128 @@
+package mylang.analysis;
+
+import mylang.Problem;
+import mylang.SourceIndex;
+import mylang.ast.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// What the walk knows about the node being visited, shared by every analysis: the enclosing if statements, the
+// names in scope and where to report problems.
+//
+// Each if body opens a scope. Declarations bind their name in the scope they're in, and uses of the name are
+// counted in the innermost binding.
+public class AnalysisContext {
+    // A `val` declaration in scope.
+    public static class Binding {
+        private final DeclarationStatement declaration;
+        private int uses;
+
+        private Binding(DeclarationStatement declaration) {
+            this.declaration = declaration;
+        }
+
+        public DeclarationStatement declaration() {
+            return declaration;
+        }
+
+        public int value() {
+            return declaration.number().number();
+        }
+
+        public int uses() {
+            return uses;
+        }
+    }
+
+    private final SourceIndex index;
+    private final List<Problem> problems = new ArrayList<>();
+    private final Deque<Map<String, Binding>> scopes = new ArrayDeque<>();
+    private final Deque<IfStatement> ifs = new ArrayDeque<>();
+    private final Map<Analysis, Object> states = new IdentityHashMap<>();
+
+    AnalysisContext(SourceIndex index) {
+        this.index = index;
+        scopes.push(new LinkedHashMap<>());
+    }
+
+    // Reports a problem at `node`. Nodes without a span, like interned ones, are reported at the nearest enclosing
+    // if statement that has one, or without a position if there's none.
+    public void report(Node node, String descriptionFmt, Object... args) {
+        var description = String.format(descriptionFmt, args);
+        if (node.span() != Span.NONE) {
+            problems.add(new Problem(index, node.start(), description));
+            return;
+        }
+        for (var enclosing : ifs) {
+            if (enclosing.span() != Span.NONE) {
+                problems.add(new Problem(index, enclosing.start(), description));
+                return;
+            }
+        }
+        problems.add(new Problem(description));
+    }
+
+    // Whatever `analysis` keeps track of during this walk, created by `initial` on first use. Analyses may be
+    // shared by several pass managers and threads, so per-walk state lives here rather than in the analysis.
+    @SuppressWarnings("unchecked")
+    public <T> T state(Analysis analysis, Supplier<T> initial) {
+        return (T) states.computeIfAbsent(analysis, a -> initial.get());
+    }
+
+    // Null if the name isn't bound in any enclosing scope.
+    public Binding lookup(String name) {
+        for (var scope : scopes) {
+            var binding = scope.get(name);
+            if (binding != null)
+                return binding;
+        }
+        return null;
+    }
+
+    // The bindings of the innermost scope, in declaration order.
+    public Collection<Binding> scope() {
+        return scopes.peek().values();
+    }
+
+    // How many if bodies we're in.
+    public int depth() {
+        return ifs.size();
+    }
+
+    // Null at the top level.
+    public IfStatement enclosingIf() {
+        return ifs.peek();
+    }
+
+    void enterBody(IfStatement node) {
+        ifs.push(node);
+        scopes.push(new LinkedHashMap<>());
+    }
+
+    void exitBody() {
+        ifs.pop();
+        scopes.pop();
+    }
+
+    void bind(DeclarationStatement declaration) {
+        scopes.peek().put(declaration.name().name(), new Binding(declaration));
+    }
+
+    void use(Name name) {
+        var binding = lookup(name.name());
+        if (binding != null)
+            binding.uses++;
+    }
+
+    List<Problem> problems() {
+        return problems;
+    }
+}
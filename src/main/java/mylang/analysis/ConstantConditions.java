@@ -0,0 +1,56 @@
+package mylang.analysis;
+
+import mylang.ast.ConditionExpression;
+import mylang.ast.Name;
+import mylang.ast.Number;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// Conditions whose outcome is known without running the program: comparisons of constants, including values
+// declared with `val`, and comparisons of a name with itself.
+public class ConstantConditions implements Analysis {
+    @Override
+    public Set<NodeKind> kinds() {
+        return EnumSet.of(NodeKind.CONDITION);
+    }
+
+    @Override
+    public void condition(ConditionExpression node, AnalysisContext context) {
+        var op = node.operator().string();
+        Boolean outcome;
+        if (node.lhs() instanceof Name lhs && node.rhs() instanceof Name rhs && lhs.name().equals(rhs.name())
+                && context.lookup(lhs.name()) == null) {
+            // Same as comparing any number with itself.
+            outcome = compare(0, op, 0);
+        } else {
+            var lhs = constant(node.lhs(), context);
+            var rhs = constant(node.rhs(), context);
+            outcome = lhs == null || rhs == null ? null : compare(lhs, op, rhs);
+        }
+
+        if (outcome != null)
+            context.report(node, "Condition is always %s", outcome);
+    }
+
+    // Null if the operand isn't known up front.
+    private static Integer constant(Object operand, AnalysisContext context) {
+        if (operand instanceof Number number)
+            return number.number();
+        var binding = context.lookup(((Name) operand).name());
+        return binding == null ? null : binding.value();
+    }
+
+    // Null for operators that don't compare.
+    private static Boolean compare(int lhs, String op, int rhs) {
+        return switch (op) {
+            case "<" -> lhs < rhs;
+            case "<=" -> lhs <= rhs;
+            case ">" -> lhs > rhs;
+            case ">=" -> lhs >= rhs;
+            case "==" -> lhs == rhs;
+            case "!=" -> lhs != rhs;
+            default -> null;
+        };
+    }
+}
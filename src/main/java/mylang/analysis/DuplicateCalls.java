@@ -0,0 +1,57 @@
+package mylang.analysis;
+
+import mylang.ast.FunctionCallStatement;
+import mylang.ast.IfStatement;
+import mylang.ast.Name;
+import mylang.ast.Number;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+// The same call with the same arguments more than once in a body.
+public class DuplicateCalls implements Analysis {
+    // Calls seen so far in each body we're in, innermost first.
+    private Deque<Set<String>> bodies(AnalysisContext context) {
+        return context.state(this, ArrayDeque::new);
+    }
+
+    @Override
+    public Set<NodeKind> kinds() {
+        return EnumSet.of(NodeKind.IF, NodeKind.CALL);
+    }
+
+    @Override
+    public void enterIf(IfStatement node, AnalysisContext context) {
+        bodies(context).push(new HashSet<>());
+    }
+
+    @Override
+    public void exitIf(IfStatement node, AnalysisContext context) {
+        bodies(context).pop();
+    }
+
+    @Override
+    public void call(FunctionCallStatement node, AnalysisContext context) {
+        // Only calls in if bodies can be repeated, a program has a single top-level statement.
+        var bodies = bodies(context);
+        if (bodies.isEmpty())
+            return;
+        if (!bodies.peek().add(key(node)))
+            context.report(node, "Duplicate call to `%s`", node.name().name());
+    }
+
+    // Spans differ between the calls, so they're compared by what they say.
+    private static String key(FunctionCallStatement node) {
+        var key = new StringBuilder(node.name().name()).append('(');
+        for (var argument : node.arguments()) {
+            if (argument instanceof Name name)
+                key.append(name.name());
+            else key.append(((Number) argument).number());
+            key.append(',');
+        }
+        return key.append(')').toString();
+    }
+}
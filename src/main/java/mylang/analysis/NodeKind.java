@@ -0,0 +1,11 @@
+package mylang.analysis;
+
+// What an `Analysis` can ask to be shown. Names only count where they're used, that is as condition operands and
+// call arguments.
+public enum NodeKind {
+    IF,
+    CONDITION,
+    DECLARATION,
+    CALL,
+    NAME
+}
@@ -0,0 +1,105 @@
+package mylang.analysis;
+
+import mylang.CompilationResult;
+import mylang.Problem;
+import mylang.SourceIndex;
+import mylang.ast.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs any number of analyses in a single walk over the AST. For each kind of node, the analyses that asked for
+// it are looked up once, up front, so a node nobody cares about costs nothing beyond visiting it, and enabling
+// another analysis never adds another walk.
+//
+// The walk keeps a stack of the if bodies it's in rather than recursing, so deeply nested programs are fine.
+public class PassManager {
+    private static final Analysis[] NONE = new Analysis[0];
+
+    private final List<Analysis> analyses;
+    // Indexed by `NodeKind.ordinal()`.
+    private final Analysis[][] interested = new Analysis[NodeKind.values().length][];
+
+    public PassManager(List<Analysis> analyses) {
+        this.analyses = List.copyOf(analyses);
+        for (var kind : NodeKind.values()) {
+            var forKind = new ArrayList<Analysis>();
+            for (var analysis : this.analyses) {
+                if (analysis.kinds().contains(kind))
+                    forKind.add(analysis);
+            }
+            interested[kind.ordinal()] = forKind.toArray(NONE);
+        }
+    }
+
+    // The problems found in the result's AST, in the order they were found. Nothing is found in failed results.
+    public List<Problem> run(CompilationResult result) {
+        if (result.astRoot() == null)
+            return List.of();
+        return run(result.astRoot(), result.sourceIndex());
+    }
+
+    public List<Problem> run(Statement root, SourceIndex index) {
+        var context = new AnalysisContext(index);
+        var bodies = new ArrayDeque<Body>();
+        visit(root, context, bodies);
+        while (!bodies.isEmpty()) {
+            var body = bodies.peek();
+            if (body.next < body.node.statements().size()) {
+                visit(body.node.statements().get(body.next++), context, bodies);
+                continue;
+            }
+
+            bodies.pop();
+            for (var analysis : interested[NodeKind.IF.ordinal()])
+                analysis.exitIf(body.node, context);
+            context.exitBody();
+        }
+
+        for (var analysis : analyses)
+            analysis.finish(context);
+        return List.copyOf(context.problems());
+    }
+
+    private static class Body {
+        private final IfStatement node;
+        private int next;
+
+        private Body(IfStatement node) {
+            this.node = node;
+        }
+    }
+
+    private void visit(Statement statement, AnalysisContext context, ArrayDeque<Body> bodies) {
+        if (statement instanceof IfStatement node) {
+            for (var analysis : interested[NodeKind.IF.ordinal()])
+                analysis.enterIf(node, context);
+            var condition = node.getConditionExpression();
+            for (var analysis : interested[NodeKind.CONDITION.ordinal()])
+                analysis.condition(condition, context);
+            // The condition belongs to the enclosing scope, the body gets one of its own.
+            operand(condition.lhs(), context);
+            operand(condition.rhs(), context);
+            context.enterBody(node);
+            bodies.push(new Body(node));
+        } else if (statement instanceof DeclarationStatement node) {
+            for (var analysis : interested[NodeKind.DECLARATION.ordinal()])
+                analysis.declaration(node, context);
+            context.bind(node);
+        } else if (statement instanceof FunctionCallStatement node) {
+            for (var analysis : interested[NodeKind.CALL.ordinal()])
+                analysis.call(node, context);
+            for (var argument : node.arguments())
+                operand(argument, context);
+        }
+    }
+
+    private void operand(Object operand, AnalysisContext context) {
+        if (!(operand instanceof Name name))
+            return;
+        for (var analysis : interested[NodeKind.NAME.ordinal()])
+            analysis.name(name, context);
+        context.use(name);
+    }
+}
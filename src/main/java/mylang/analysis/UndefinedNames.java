@@ -0,0 +1,27 @@
+package mylang.analysis;
+
+import mylang.ast.Name;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// Names used without a `val` in scope that aren't provided by the environment either, like the columns a program
+// is run against.
+public class UndefinedNames implements Analysis {
+    private final Set<String> provided;
+
+    public UndefinedNames(Set<String> provided) {
+        this.provided = Set.copyOf(provided);
+    }
+
+    @Override
+    public Set<NodeKind> kinds() {
+        return EnumSet.of(NodeKind.NAME);
+    }
+
+    @Override
+    public void name(Name node, AnalysisContext context) {
+        if (context.lookup(node.name()) == null && !provided.contains(node.name()))
+            context.report(node, "Undefined name `%s`", node.name());
+    }
+}
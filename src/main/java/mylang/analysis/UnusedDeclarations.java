@@ -0,0 +1,46 @@
+package mylang.analysis;
+
+import mylang.ast.DeclarationStatement;
+import mylang.ast.IfStatement;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// Values declared but never used before they go out of scope or get declared again.
+public class UnusedDeclarations implements Analysis {
+    @Override
+    public Set<NodeKind> kinds() {
+        return EnumSet.of(NodeKind.IF, NodeKind.DECLARATION);
+    }
+
+    @Override
+    public void declaration(DeclarationStatement node, AnalysisContext context) {
+        var name = node.name().name();
+        for (var binding : context.scope()) {
+            // Redeclaring in the same scope replaces the binding for good.
+            if (binding.declaration().name().name().equals(name) && binding.uses() == 0)
+                report(binding.declaration(), context);
+        }
+    }
+
+    @Override
+    public void exitIf(IfStatement node, AnalysisContext context) {
+        reportUnused(context);
+    }
+
+    @Override
+    public void finish(AnalysisContext context) {
+        reportUnused(context);
+    }
+
+    private static void reportUnused(AnalysisContext context) {
+        for (var binding : context.scope()) {
+            if (binding.uses() == 0)
+                report(binding.declaration(), context);
+        }
+    }
+
+    private static void report(DeclarationStatement declaration, AnalysisContext context) {
+        context.report(declaration, "Value `%s` is never used", declaration.name().name());
+    }
+}
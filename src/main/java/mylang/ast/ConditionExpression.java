@@ -1,4 +1,8 @@
 package mylang.ast;
 
-public record ConditionExpression(Object lhs, Object rhs, Operator operator) {
+// Both operands are either a `Name` or a `Number`.
+public record ConditionExpression(Object lhs, Object rhs, Operator operator, long span) implements Node {
+    public ConditionExpression(Object lhs, Object rhs, Operator operator) {
+        this(lhs, rhs, operator, Span.NONE);
+    }
 }
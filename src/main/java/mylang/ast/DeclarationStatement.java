@@ -1,4 +1,7 @@
 package mylang.ast;
 
-public record DeclarationStatement(Name name, Number number) implements Statement {
+public record DeclarationStatement(Name name, Number number, long span) implements Statement {
+    public DeclarationStatement(Name name, Number number) {
+        this(name, number, Span.NONE);
+    }
 }
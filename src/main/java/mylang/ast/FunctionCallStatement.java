@@ -2,5 +2,9 @@ package mylang.ast;
 
 import java.util.List;
 
-public record FunctionCallStatement(Name name, List<Object> arguments) implements Statement {
+// Each argument is either a `Name` or a `Number`.
+public record FunctionCallStatement(Name name, List<Object> arguments, long span) implements Statement {
+    public FunctionCallStatement(Name name, List<Object> arguments) {
+        this(name, arguments, Span.NONE);
+    }
 }
@@ -6,10 +6,16 @@ import java.util.Objects;
 public class IfStatement implements Statement {
     private final ConditionExpression conditionExpression;
     private final List<Statement> statements;
+    private final long span;
 
     public IfStatement(ConditionExpression conditionExpression, List<Statement> stmts) {
+        this(conditionExpression, stmts, Span.NONE);
+    }
+
+    public IfStatement(ConditionExpression conditionExpression, List<Statement> stmts, long span) {
         this.conditionExpression = conditionExpression;
         statements = Objects.requireNonNull(stmts);
+        this.span = span;
     }
 
     public ConditionExpression getConditionExpression() {
@@ -19,4 +25,9 @@ public class IfStatement implements Statement {
     public List<Statement> statements() {
         return statements;
     }
+
+    @Override
+    public long span() {
+        return span;
+    }
 }
@@ -2,8 +2,12 @@ package mylang.ast;
 
 import java.util.Objects;
 
-public record Name(String name) {
+public record Name(String name, long span) implements Node {
     public Name {
         Objects.requireNonNull(name);
     }
+
+    public Name(String name) {
+        this(name, Span.NONE);
+    }
 }
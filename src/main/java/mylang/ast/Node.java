@@ -0,0 +1,14 @@
+package mylang.ast;
+
+public interface Node {
+    // See `Span`.
+    long span();
+
+    default int start() {
+        return Span.start(span());
+    }
+
+    default int end() {
+        return Span.end(span());
+    }
+}
@@ -2,8 +2,12 @@ package mylang.ast;
 
 import java.util.Objects;
 
-public record Number(Integer number) {
+public record Number(Integer number, long span) implements Node {
     public Number {
         Objects.requireNonNull(number);
     }
+
+    public Number(Integer number) {
+        this(number, Span.NONE);
+    }
 }
@@ -2,8 +2,12 @@ package mylang.ast;
 
 import java.util.Objects;
 
-public record Operator(String string) {
+public record Operator(String string, long span) implements Node {
     public Operator {
         Objects.requireNonNull(string);
     }
+
+    public Operator(String string) {
+        this(string, Span.NONE);
+    }
 }
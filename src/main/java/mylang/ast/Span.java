@@ -0,0 +1,31 @@
+package mylang.ast;
+
+// A node's position in the source as a single `long`: the start offset in the upper half and the end offset
+// (exclusive) in the lower half. Offsets count chars from the beginning of the source. Use
+// `CompilationResult.sourceIndex()` to turn them into lines and columns.
+public class Span {
+    // For nodes that weren't parsed out of a source.
+    public static final long NONE = -1L;
+
+    private Span() {}
+
+    public static long of(int start, int end) {
+        return ((long) start << 32) | (end & 0xFFFFFFFFL);
+    }
+
+    public static int start(long span) {
+        return (int) (span >> 32);
+    }
+
+    public static int end(long span) {
+        return (int) span;
+    }
+
+    public static long cover(long first, long last) {
+        return of(start(first), end(last));
+    }
+
+    public static String toString(long span) {
+        return span == NONE ? "-" : start(span) + ".." + end(span);
+    }
+}
@@ -1,5 +1,5 @@
 package mylang.ast;
 
-public interface Statement {
+public interface Statement extends Node {
 
 }
@@ -0,0 +1,210 @@
+package mylang.cli;
+
+import mylang.ParserPool;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// Checks every program under a directory. The work runs as a pipeline of stages connected by bounded queues:
+//
+//   walk (1 thread) -> read (READERS threads) -> parse (one thread per core) -> report (calling thread)
+//
+// A full queue blocks the stage feeding it, so a slow stage throttles the ones before it instead of piling up
+// sources in memory. Files are numbered in walk order, and the reporter holds back results that finish early, so
+// the output comes out in the same order on every run. The walker takes a permit for every file it hands on, which
+// the reporter gives back once the file is reported, so no more than `QUEUE_CAPACITY` results ever wait on a
+// straggler.
+//
+// Symbolic links below the root are not followed, which keeps link cycles from walking forever. A directory that
+// can't be listed is reported at the end and skipped.
+class CheckCommand {
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int READERS = 2;
+
+    // Tells the next stage that the previous one is done. Each consumer of a queue gets its own.
+    private static final Item END = new Item(-1, null, null, null);
+
+    private record Item(long sequence, Path path, String source, String error) {}
+
+    private record Outcome(long sequence, int status, String report) {}
+
+    private static final Outcome LAST = new Outcome(-1, Report.OK, "");
+
+    private final Path root;
+    private final String suffix;
+    private final int workers;
+    private final BlockingQueue<Item> paths = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Item> sources = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Outcome> outcomes = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicInteger activeReaders = new AtomicInteger(READERS);
+    private final AtomicInteger activeWorkers;
+    // Files walked but not reported yet.
+    private final Semaphore window = new Semaphore(QUEUE_CAPACITY);
+    // Only touched by the walker until it's joined.
+    private final List<String> walkErrors = new ArrayList<>();
+
+    CheckCommand(Path root, String suffix, int workers) {
+        this.root = root;
+        this.suffix = suffix;
+        this.workers = workers;
+        activeWorkers = new AtomicInteger(workers);
+    }
+
+    int run(PrintStream out, PrintStream err) {
+        var threads = new ArrayList<Thread>();
+        threads.add(start("mylang-check-walker", this::walk));
+        for (int i = 0; i < READERS; i++)
+            threads.add(start("mylang-check-reader-" + i, this::read));
+        for (int i = 0; i < workers; i++)
+            threads.add(start("mylang-check-parser-" + i, this::parse));
+
+        int status = Report.OK;
+        long checked = 0;
+        long withProblems = 0;
+        long failed = 0;
+        var early = new HashMap<Long, Outcome>();
+        long next = 0;
+        try {
+            for (var outcome = outcomes.take(); outcome != LAST; outcome = outcomes.take()) {
+                early.put(outcome.sequence(), outcome);
+                for (var ready = early.remove(next); ready != null; ready = early.remove(++next)) {
+                    window.release();
+                    out.print(ready.report());
+                    checked++;
+                    status = Math.max(status, ready.status());
+                    if (ready.status() == Report.PROBLEMS)
+                        withProblems++;
+                    else if (ready.status() == Report.FAILED)
+                        failed++;
+                }
+            }
+            for (var thread : threads)
+                thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            threads.forEach(Thread::interrupt);
+            return Report.FAILED;
+        }
+
+        for (var error : walkErrors) {
+            err.print(error);
+            status = Report.FAILED;
+        }
+        out.printf("%d files checked, %d with problems, %d failed%n", checked, withProblems, failed);
+        return status;
+    }
+
+    private static Thread start(String name, Stage stage) {
+        var thread = new Thread(() -> {
+            try {
+                stage.run();
+            } catch (InterruptedException e) {
+                // Asked to stop.
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private interface Stage {
+        void run() throws InterruptedException;
+    }
+
+    // Depth-first, with each directory's entries sorted by name, so the numbering doesn't depend on the file system.
+    private void walk() throws InterruptedException {
+        long sequence = 0;
+        var pending = new ArrayDeque<Path>();
+        pending.push(root);
+        try {
+            while (!pending.isEmpty()) {
+                var path = pending.pop();
+                boolean directory = path == root ? Files.isDirectory(path)
+                        : Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS);
+                if (!directory) {
+                    if (Files.isRegularFile(path) && path.getFileName().toString().endsWith(suffix)) {
+                        window.acquire();
+                        paths.put(new Item(sequence++, path, null, null));
+                    }
+                    continue;
+                }
+
+                List<Path> entries;
+                try (Stream<Path> listing = Files.list(path)) {
+                    entries = listing.sorted().toList();
+                } catch (IOException | UncheckedIOException e) {
+                    var cause = e instanceof UncheckedIOException unchecked ? unchecked.getCause() : e;
+                    walkErrors.add(Report.formatError(path.toString(), "Cannot list directory: " + cause.getMessage()));
+                    continue;
+                }
+                // Pushed in reverse so that they come off the stack in order.
+                for (int i = entries.size() - 1; i >= 0; i--)
+                    pending.push(entries.get(i));
+            }
+        } finally {
+            for (int i = 0; i < READERS; i++)
+                paths.put(END);
+        }
+    }
+
+    private void read() throws InterruptedException {
+        try {
+            for (var item = paths.take(); item != END; item = paths.take()) {
+                // Every item has to reach the reporter, or the files after it are held back for good. That goes
+                // for errors too, like running out of memory on a huge file.
+                Item read;
+                try {
+                    read = new Item(item.sequence(), item.path(), Files.readString(item.path()), null);
+                } catch (IOException e) {
+                    read = new Item(item.sequence(), item.path(), null, "Cannot read file: " + e.getMessage());
+                } catch (RuntimeException | Error e) {
+                    read = new Item(item.sequence(), item.path(), null, "Cannot read file: " + e);
+                }
+                sources.put(read);
+            }
+        } finally {
+            if (activeReaders.decrementAndGet() == 0) {
+                for (int i = 0; i < workers; i++)
+                    sources.put(END);
+            }
+        }
+    }
+
+    private void parse() throws InterruptedException {
+        try {
+            for (var item = sources.take(); item != END; item = sources.take())
+                outcomes.put(check(item));
+        } finally {
+            if (activeWorkers.decrementAndGet() == 0)
+                outcomes.put(LAST);
+        }
+    }
+
+    private static Outcome check(Item item) {
+        var name = item.path().toString();
+        if (item.error() != null)
+            return new Outcome(item.sequence(), Report.FAILED, Report.formatError(name, item.error()));
+        try {
+            var result = ParserPool.parse(item.source());
+            return new Outcome(item.sequence(), Report.status(result), Report.format(name, result));
+        } catch (RuntimeException e) {
+            return new Outcome(item.sequence(), Report.FAILED, Report.formatError(name, e.getMessage()));
+        } catch (Error e) {
+            // Like a stack overflow. Reported like any other failure, since the reporter waits for every file.
+            return new Outcome(item.sequence(), Report.FAILED, Report.formatError(name, e.toString()));
+        }
+    }
+}
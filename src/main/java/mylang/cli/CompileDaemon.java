@@ -0,0 +1,115 @@
+package mylang.cli;
+
+import mylang.ParserPool;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// Long-running compile server. Keeping one JVM around means compiles skip JVM startup and run on JIT-compiled
+// parser code. Each connection gets its own worker thread, and each worker reuses its thread's pooled parser.
+//
+// We're on Java 17, so workers are pooled platform threads rather than virtual threads. Connections are expected
+// to be few and short-lived (one per CLI invocation), and compiling is CPU-bound anyway, so there are only a few
+// workers. Once they're all busy, the daemon stops accepting connections, and further clients wait in the socket's
+// backlog instead of each getting a thread of its own.
+public class CompileDaemon implements Closeable {
+    private static final String WARMUP_PROGRAM = "if value >= 10 {\n" +
+            "val limit = 42\n" +
+            "notify(value, limit)\n" +
+            "if other != 0 { reset() }\n" +
+            "}";
+
+    static final int MAX_CONNECTIONS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private final DaemonAddress address;
+    private final ServerSocketChannel server;
+    private final Semaphore connections = new Semaphore(MAX_CONNECTIONS);
+    private final ExecutorService workers = Executors.newFixedThreadPool(MAX_CONNECTIONS, runnable -> {
+        var thread = new Thread(runnable, "mylang-daemon-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private CompileDaemon(DaemonAddress address, ServerSocketChannel server) {
+        this.address = address;
+        this.server = server;
+    }
+
+    public static CompileDaemon start(String address) throws IOException {
+        var daemonAddress = address == null ? DaemonAddress.defaultAddress() : DaemonAddress.parse(address);
+        var server = daemonAddress.bind();
+        return new CompileDaemon(daemonAddress.boundBy(server), server);
+    }
+
+    public String address() {
+        return address.toString();
+    }
+
+    // Runs the parser often enough for the JIT to compile the hot paths before the first real request shows up.
+    public void warmUp(int iterations) {
+        for (int i = 0; i < iterations; i++)
+            ParserPool.parse(WARMUP_PROGRAM);
+    }
+
+    // Accepts connections until the daemon is closed.
+    public void serve() throws IOException {
+        while (true) {
+            connections.acquireUninterruptibly();
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                connections.release();
+                throw e;
+            }
+            workers.execute(() -> {
+                try {
+                    handle(channel);
+                } finally {
+                    connections.release();
+                }
+            });
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel) {
+            var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            Protocol.Request request;
+            while ((request = Protocol.readRequest(in)) != null)
+                Protocol.writeResponse(out, compile(request));
+        } catch (IOException e) {
+            // The client went away mid-request. Nothing we can report it to.
+        }
+    }
+
+    static Protocol.Response compile(Protocol.Request request) {
+        try {
+            var result = ParserPool.parse(request.source());
+            return new Protocol.Response(Report.status(result), Report.format(request.name(), result));
+        } catch (RuntimeException e) {
+            return new Protocol.Response(Report.FAILED, Report.formatError(request.name(), e.getMessage()));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        workers.shutdown();
+        address.cleanUp();
+    }
+}
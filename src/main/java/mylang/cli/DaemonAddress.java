@@ -0,0 +1,154 @@
+package mylang.cli;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+// Where the compile daemon listens. A bare port number or `host:port` means loopback TCP, anything else is taken
+// as the path of a Unix domain socket. The daemon doesn't authenticate anyone, so hosts other than loopback ones
+// are refused.
+//
+// For the same reason, a Unix domain socket is only accessible to its owner. By default it goes into a directory of
+// the user's own under the temp dir, which nobody else may enter, so that it can't be squatted on or connected to by
+// other users while it's being set up.
+class DaemonAddress {
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_ONLY_SOCKET = PosixFilePermissions.fromString("rw-------");
+
+    private final SocketAddress address;
+
+    private DaemonAddress(SocketAddress address) {
+        this.address = address;
+    }
+
+    static DaemonAddress parse(String spec) throws IOException {
+        if (spec.matches("\\d+"))
+            return new DaemonAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(spec)));
+
+        int colon = spec.lastIndexOf(':');
+        if (colon > 0 && spec.substring(colon + 1).matches("\\d+") && !spec.contains("/")) {
+            var host = spec.substring(0, colon);
+            var address = new InetSocketAddress(host, Integer.parseInt(spec.substring(colon + 1)));
+            if (address.isUnresolved())
+                throw new IOException(String.format("Unknown host `%s`", host));
+            if (!address.getAddress().isLoopbackAddress())
+                throw new IOException(String.format("`%s` is not a loopback address", host));
+            return new DaemonAddress(address);
+        }
+
+        return new DaemonAddress(UnixDomainSocketAddress.of(spec));
+    }
+
+    static DaemonAddress defaultAddress() throws IOException {
+        var user = System.getProperty("user.name", "user");
+        var directory = privateDirectory(Path.of(System.getProperty("java.io.tmpdir"), "mylang-" + user));
+        return parse(directory.resolve("daemon.sock").toString());
+    }
+
+    // Creates `directory` for the current user only, or makes sure that an existing one is theirs and nobody else's.
+    // Filesystems without POSIX permissions are taken as they are.
+    private static Path privateDirectory(Path directory) throws IOException {
+        if (Files.getFileAttributeView(directory.getParent(), PosixFileAttributeView.class) == null)
+            return Files.createDirectories(directory);
+        try {
+            Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+            // The umask may have taken permissions away, but never adds any.
+            return directory;
+        } catch (FileAlreadyExistsException e) {
+            // Someone, maybe us, made it before. Check below.
+        }
+        var attributes = Files.readAttributes(directory, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (!attributes.isDirectory())
+            throw new IOException(String.format("%s exists and is not a directory", directory));
+        if (!attributes.owner().getName().equals(System.getProperty("user.name")))
+            throw new IOException(String.format("%s belongs to %s", directory, attributes.owner().getName()));
+        if (!OWNER_ONLY_DIRECTORY.containsAll(attributes.permissions()))
+            throw new IOException(String.format("%s is accessible to other users", directory));
+        return directory;
+    }
+
+    private boolean isUnix() {
+        return address instanceof UnixDomainSocketAddress;
+    }
+
+    ServerSocketChannel bind() throws IOException {
+        if (!isUnix())
+            return ServerSocketChannel.open().bind(address);
+
+        // A socket file left behind by a daemon that didn't shut down cleanly would make the bind fail. Only remove
+        // it if it really is a socket and nobody answers on it, rather than deleting some unrelated file or taking
+        // over from a daemon that's still running.
+        var path = ((UnixDomainSocketAddress) address).getPath();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            attributes = null;
+        }
+        if (attributes != null) {
+            if (!attributes.isOther())
+                throw new IOException(String.format("%s exists and is not a socket", path));
+            if (answers())
+                throw new IOException(String.format("A daemon is already listening on %s", path));
+            Files.deleteIfExists(path);
+        }
+        var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(address);
+        try {
+            if (Files.getFileAttributeView(path, PosixFileAttributeView.class) != null)
+                Files.setPosixFilePermissions(path, OWNER_ONLY_SOCKET);
+        } catch (IOException e) {
+            server.close();
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        return server;
+    }
+
+    private boolean answers() {
+        try {
+            connect().close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    SocketChannel connect() throws IOException {
+        return SocketChannel.open(address);
+    }
+
+    // Where `server` actually ended up, which differs from this address if it asked for any free port.
+    DaemonAddress boundBy(ServerSocketChannel server) throws IOException {
+        return isUnix() ? this : new DaemonAddress(server.getLocalAddress());
+    }
+
+    void cleanUp() throws IOException {
+        if (isUnix())
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+    }
+
+    @Override
+    public String toString() {
+        if (isUnix())
+            return ((UnixDomainSocketAddress) address).getPath().toString();
+        // Something `parse()` takes back.
+        var inet = (InetSocketAddress) address;
+        return inet.getAddress().getHostAddress() + ":" + inet.getPort();
+    }
+}
@@ -0,0 +1,45 @@
+package mylang.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+// One connection to a compile daemon. Requests go one at a time; not thread-safe.
+public class DaemonClient implements Closeable {
+    private final SocketChannel channel;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    private DaemonClient(SocketChannel channel) {
+        this.channel = channel;
+        in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    public static DaemonClient connect(String address) throws IOException {
+        var daemonAddress = address == null ? DaemonAddress.defaultAddress() : DaemonAddress.parse(address);
+        return new DaemonClient(daemonAddress.connect());
+    }
+
+    // Returns the daemon's status code, and hands the printable report to `report`. Sources too large for the daemon
+    // fail without ending the connection.
+    public int compile(String name, String source, StringBuilder report) throws IOException {
+        if (!Protocol.writeRequest(out, new Protocol.Request(name, source))) {
+            report.append(Report.formatError(name, "Too large to compile on the daemon"));
+            return Report.FAILED;
+        }
+        var response = Protocol.readResponse(in);
+        report.append(response.report());
+        return response.status();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,209 @@
+package mylang.cli;
+
+import mylang.ParserPool;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class Main {
+    private static final String USAGE = "usage:\n" +
+            "  mylang compile [--connect <address>] <file>...\n" +
+            "  mylang daemon [--listen <address>]\n" +
+            "  mylang check [--ext <suffix>] [--jobs <n>] <dir>\n" +
+            "  mylang watch [--ext <suffix>] [--jobs <n>] [--debounce <ms>] <dir>\n" +
+            "\n" +
+            "<address> is either the path of a Unix domain socket, a loopback port or host:port.\n" +
+            "It defaults to a socket in the temp directory.\n";
+
+    // Enough iterations for C2 to kick in on the parser's hot paths.
+    private static final int WARMUP_ITERATIONS = 20_000;
+
+    // Each job is a thread of its own.
+    private static final int MAX_JOBS = 1024;
+    private static final long MAX_DEBOUNCE_MILLIS = Duration.ofHours(1).toMillis();
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length == 0) {
+            err.print(USAGE);
+            return Report.USAGE;
+        }
+
+        var rest = Arrays.asList(args).subList(1, args.length);
+        return switch (args[0]) {
+            case "compile" -> compile(rest, out, err);
+            case "daemon" -> daemon(rest, out, err);
+            case "check" -> check(rest, out, err);
+            case "watch" -> watch(rest, out, err);
+            default -> {
+                err.print(USAGE);
+                yield Report.USAGE;
+            }
+        };
+    }
+
+    private static int compile(List<String> args, PrintStream out, PrintStream err) {
+        String address = null;
+        var files = new ArrayList<String>();
+        for (int i = 0; i < args.size(); i++) {
+            if (args.get(i).equals("--connect") && i + 1 < args.size())
+                address = args.get(++i);
+            else files.add(args.get(i));
+        }
+        if (files.isEmpty()) {
+            err.print(USAGE);
+            return Report.USAGE;
+        }
+
+        if (address != null)
+            return compileRemotely(address, files, out, err);
+
+        int status = Report.OK;
+        for (var file : files) {
+            try {
+                var result = ParserPool.parse(Files.readString(Path.of(file)));
+                out.print(Report.format(file, result));
+                status = Math.max(status, Report.status(result));
+            } catch (IOException | RuntimeException e) {
+                err.print(Report.formatError(file, e.getMessage()));
+                status = Report.FAILED;
+            }
+        }
+        return status;
+    }
+
+    private static int compileRemotely(String address, List<String> files, PrintStream out, PrintStream err) {
+        int status = Report.OK;
+        try (var client = DaemonClient.connect(address)) {
+            var report = new StringBuilder();
+            for (var file : files) {
+                String source;
+                try {
+                    source = Files.readString(Path.of(file));
+                } catch (IOException e) {
+                    err.print(Report.formatError(file, e.getMessage()));
+                    status = Report.FAILED;
+                    continue;
+                }
+                status = Math.max(status, client.compile(file, source, report));
+                out.print(report);
+                report.setLength(0);
+            }
+        } catch (IOException e) {
+            err.print(Report.formatError(address, "Cannot reach daemon: " + e.getMessage()));
+            return Report.FAILED;
+        }
+        return status;
+    }
+
+    // Options shared by the commands that work on a directory tree.
+    private record TreeOptions(String suffix, int jobs, Duration debounce, String dir) {}
+
+    // Null if the arguments don't make sense. `--debounce` is only taken if `debounce` is true.
+    private static TreeOptions parseTreeOptions(List<String> args, boolean debounce) {
+        var suffix = "";
+        int jobs = Runtime.getRuntime().availableProcessors();
+        var interval = WatchCommand.DEFAULT_DEBOUNCE;
+        String dir = null;
+        for (int i = 0; i < args.size(); i++) {
+            var arg = args.get(i);
+            if (arg.equals("--ext") && i + 1 < args.size()) {
+                suffix = args.get(++i);
+            } else if (arg.equals("--jobs") && i + 1 < args.size() && args.get(i + 1).matches("[1-9]\\d*")) {
+                jobs = (int) parseAtMost(args.get(++i), MAX_JOBS);
+                if (jobs < 0)
+                    return null;
+            } else if (debounce && arg.equals("--debounce") && i + 1 < args.size()
+                    && args.get(i + 1).matches("\\d+")) {
+                long millis = parseAtMost(args.get(++i), MAX_DEBOUNCE_MILLIS);
+                if (millis < 0)
+                    return null;
+                interval = Duration.ofMillis(millis);
+            } else if (dir == null) {
+                dir = arg;
+            } else {
+                return null;
+            }
+        }
+        return dir == null ? null : new TreeOptions(suffix, jobs, interval, dir);
+    }
+
+    // -1 if `digits` stand for more than `max`, however many there are.
+    private static long parseAtMost(String digits, long max) {
+        try {
+            long value = Long.parseLong(digits);
+            return value <= max ? value : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int check(List<String> args, PrintStream out, PrintStream err) {
+        var options = parseTreeOptions(args, false);
+        if (options == null) {
+            err.print(USAGE);
+            return Report.USAGE;
+        }
+        return new CheckCommand(Path.of(options.dir()), options.suffix(), options.jobs()).run(out, err);
+    }
+
+    private static int watch(List<String> args, PrintStream out, PrintStream err) {
+        var options = parseTreeOptions(args, true);
+        if (options == null) {
+            err.print(USAGE);
+            return Report.USAGE;
+        }
+        return new WatchCommand(Path.of(options.dir()), options.suffix(), options.jobs(), options.debounce())
+                .run(out, err);
+    }
+
+    private static int daemon(List<String> args, PrintStream out, PrintStream err) {
+        String address = null;
+        if (args.size() == 2 && args.get(0).equals("--listen")) {
+            address = args.get(1);
+        } else if (!args.isEmpty()) {
+            err.print(USAGE);
+            return Report.USAGE;
+        }
+
+        CompileDaemon daemon;
+        try {
+            daemon = CompileDaemon.start(address);
+        } catch (IOException e) {
+            err.println("Daemon failed: " + e.getMessage());
+            return Report.FAILED;
+        }
+
+        // Closing removes the socket file, so do it on Ctrl-C too.
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> closeQuietly(daemon)));
+        try {
+            daemon.warmUp(WARMUP_ITERATIONS);
+            out.println("Listening on " + daemon.address());
+            out.flush();
+            daemon.serve();
+        } catch (IOException e) {
+            err.println("Daemon failed: " + e.getMessage());
+            return Report.FAILED;
+        } finally {
+            closeQuietly(daemon);
+        }
+        return Report.OK;
+    }
+
+    private static void closeQuietly(CompileDaemon daemon) {
+        try {
+            daemon.close();
+        } catch (IOException e) {
+            // Shutting down anyway.
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package mylang.cli;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Wire format between the CLI and the daemon. A connection carries any number of requests, each answered before
+// the next one is read:
+//
+//   request:  name (modified UTF-8, see DataOutput.writeUTF), source length in bytes (int), source (UTF-8)
+//   response: status (int, one of the Report codes), report length in bytes (int), report (UTF-8)
+class Protocol {
+    // Refuse absurd frames rather than trying to allocate them. Each connection may have one of these in flight.
+    static final int MAX_FRAME = 16 << 20;
+
+    record Request(String name, String source) {}
+
+    record Response(int status, String report) {}
+
+    private Protocol() {}
+
+    // Returns false, having written nothing, if the source is too large to send.
+    static boolean writeRequest(DataOutputStream out, Request request) throws IOException {
+        var source = request.source().getBytes(StandardCharsets.UTF_8);
+        if (source.length > MAX_FRAME)
+            return false;
+        out.writeUTF(request.name());
+        writeBytes(out, source);
+        out.flush();
+        return true;
+    }
+
+    // Returns null once the other side has closed the connection.
+    static Request readRequest(DataInputStream in) throws IOException {
+        String name;
+        try {
+            name = in.readUTF();
+        } catch (EOFException e) {
+            return null;
+        }
+        return new Request(name, readText(in));
+    }
+
+    static void writeResponse(DataOutputStream out, Response response) throws IOException {
+        out.writeInt(response.status());
+        writeText(out, response.report());
+        out.flush();
+    }
+
+    static Response readResponse(DataInputStream in) throws IOException {
+        int status = in.readInt();
+        return new Response(status, readText(in));
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_FRAME)
+            throw new IOException("Frame too large");
+        writeBytes(out, bytes);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME)
+            throw new IOException("Invalid frame length " + length);
+        var bytes = in.readNBytes(length);
+        if (bytes.length != length)
+            throw new EOFException("Truncated frame");
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,30 @@
+package mylang.cli;
+
+import mylang.CompilationResult;
+
+// How compile results are printed, no matter whether they came from this JVM or from a daemon.
+class Report {
+    static final int OK = 0;
+    static final int PROBLEMS = 1;
+    static final int FAILED = 2;
+    static final int USAGE = 64;
+
+    private Report() {}
+
+    static int status(CompilationResult result) {
+        if (result.failed())
+            return FAILED;
+        return result.hasProblems() ? PROBLEMS : OK;
+    }
+
+    static String format(String name, CompilationResult result) {
+        var builder = new StringBuilder();
+        for (var problem : result.problems())
+            builder.append(name).append(": ").append(problem.prettyError());
+        return builder.toString();
+    }
+
+    static String formatError(String name, String message) {
+        return name + ": " + message + "\n";
+    }
+}
@@ -0,0 +1,279 @@
+package mylang.cli;
+
+import mylang.ParserPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+// Checks every program under a directory, then keeps watching it and rechecks files as they change. Only changed
+// files are read and parsed again; everything else is answered from the results cached for it. Instead of full
+// reports, only the problems that appeared (`+`) or went away (`-`) since the last check are printed.
+//
+// Editors tend to save a file in several steps, so change events are collected until none has come in for the
+// debounce interval, and then rechecked as one batch on the worker pool. Files that never stop changing for that
+// long (logs, say) would hold a batch back for good, so a batch is cut off after `MAX_BATCH_DEBOUNCES` intervals.
+//
+// Like `CheckCommand`, only regular files are checked, and symbolic links below the root are not followed. A directory that can't be watched is
+// reported and skipped, and one that's gone by the time we get to it is skipped silently. Only the root itself
+// has to be there for the watch to go on.
+class WatchCommand implements Closeable {
+    static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(50);
+    static final int MAX_BATCH_DEBOUNCES = 4;
+
+    // What we know about a file from its last check. `digest` is the SHA-256 of its bytes, and `problems` are
+    // formatted like `Report.format()` does.
+    private record Entry(byte[] digest, int status, List<String> problems) {}
+
+    // Stands for a file that's gone.
+    private static final Entry DELETED = new Entry(null, Report.OK, List.of());
+
+    private final Path root;
+    private final String suffix;
+    private final Duration debounce;
+    private final ExecutorService workers;
+    private final Map<Path, Entry> cache = new HashMap<>();
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private WatchService watchService;
+
+    WatchCommand(Path root, String suffix, int workers, Duration debounce) {
+        this.root = root;
+        this.suffix = suffix;
+        this.debounce = debounce;
+        this.workers = Executors.newFixedThreadPool(workers, task -> {
+            var thread = new Thread(task, "mylang-watch-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    int run(PrintStream out, PrintStream err) {
+        try {
+            start(out);
+            while (true)
+                poll(Duration.ofDays(1), out);
+        } catch (IOException e) {
+            err.print(Report.formatError(root.toString(), e.getMessage()));
+            return Report.FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Report.OK;
+        } finally {
+            close();
+        }
+    }
+
+    // Starts watching and checks everything there is.
+    void start(PrintStream out) throws IOException, InterruptedException {
+        watchService = root.getFileSystem().newWatchService();
+        var files = new TreeSet<Path>();
+        register(root, files, out);
+        recheck(files, out);
+        long withProblems = cache.values().stream().filter(entry -> entry.status() != Report.OK).count();
+        out.printf("%d files watched, %d with problems%n", cache.size(), withProblems);
+        out.flush();
+    }
+
+    // Waits up to `timeout` for changes and rechecks them. Returns the number of files rechecked. Prints nothing if
+    // none of the changes concern a program.
+    int poll(Duration timeout, PrintStream out) throws IOException, InterruptedException {
+        var key = watchService.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        if (key == null)
+            return 0;
+
+        long start = System.nanoTime();
+        var changed = new TreeSet<Path>();
+        collect(key, changed, out);
+        long deadline = start + debounce.toNanos() * MAX_BATCH_DEBOUNCES;
+        for (long left = deadline - System.nanoTime(); left > 0; left = deadline - System.nanoTime()) {
+            key = watchService.poll(Math.min(debounce.toNanos(), left), TimeUnit.NANOSECONDS);
+            if (key == null)
+                break;
+            collect(key, changed, out);
+        }
+        if (changed.isEmpty())
+            return 0;
+        recheck(changed, out);
+        out.printf("%d files rechecked in %d ms%n", changed.size(), (System.nanoTime() - start) / 1_000_000);
+        out.flush();
+        return changed.size();
+    }
+
+    // Watches `dir` and everything below it, adding the programs found to `files`.
+    private void register(Path dir, Set<Path> files, PrintStream out) throws IOException {
+        var pending = new ArrayDeque<Path>();
+        pending.push(dir);
+        while (!pending.isEmpty()) {
+            var path = pending.pop();
+            try (Stream<Path> listing = Files.list(path)) {
+                directories.put(path.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), path);
+                for (var entry : (Iterable<Path>) listing::iterator) {
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS))
+                        pending.push(entry);
+                    else if (isProgram(entry) && Files.isRegularFile(entry))
+                        files.add(entry);
+                }
+            } catch (IOException | UncheckedIOException e) {
+                var cause = e instanceof UncheckedIOException unchecked ? unchecked.getCause() : (IOException) e;
+                if (path.equals(root))
+                    throw cause;
+                // Deleted again right after it was created. Its ENTRY_DELETE takes care of whatever we found in it.
+                if (cause instanceof NoSuchFileException)
+                    continue;
+                out.print(Report.formatError(path.toString(), "Cannot watch directory: " + cause.getMessage()));
+            }
+        }
+    }
+
+    private boolean isProgram(Path path) {
+        return path.getFileName().toString().endsWith(suffix);
+    }
+
+    private void collect(WatchKey key, Set<Path> changed, PrintStream out) throws IOException {
+        var dir = directories.get(key);
+        for (var event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || dir == null) {
+                // Events got lost, so we can't tell what changed. Go over everything, unchanged files won't be
+                // parsed again anyway.
+                changed.addAll(cache.keySet());
+                register(root, changed, out);
+                continue;
+            }
+
+            var path = dir.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                register(path, changed, out);
+            } else if (event.kind() == ENTRY_DELETE) {
+                // Could have been a directory full of programs.
+                for (var cached : cache.keySet()) {
+                    if (cached.startsWith(path))
+                        changed.add(cached);
+                }
+            } else if (isProgram(path) && (Files.isRegularFile(path) || cache.containsKey(path))) {
+                // Directories get ENTRY_MODIFY too, when their attributes change. Programs we know of are rechecked
+                // whatever they turned into, `check()` tells.
+                changed.add(path);
+            }
+        }
+        if (!key.reset())
+            directories.remove(key);
+    }
+
+    private void recheck(Set<Path> paths, PrintStream out) throws InterruptedException {
+        var futures = new ArrayList<Future<Entry>>(paths.size());
+        for (var path : paths) {
+            var cached = cache.get(path);
+            futures.add(workers.submit(() -> check(path, cached)));
+        }
+
+        int i = 0;
+        for (var path : paths) {
+            Entry entry;
+            try {
+                entry = futures.get(i++).get();
+            } catch (ExecutionException e) {
+                entry = new Entry(null, Report.FAILED, List.of(Report.formatError(path.toString(),
+                        e.getCause().getMessage())));
+            }
+
+            var old = cache.getOrDefault(path, DELETED);
+            if (entry == DELETED)
+                cache.remove(path);
+            else cache.put(path, entry);
+            if (entry != old)
+                printDifference(old.problems(), entry.problems(), out);
+        }
+    }
+
+    private static Entry check(Path path, Entry cached) {
+        // Anything but a regular file is no program of ours, and reading a FIFO would block.
+        if (!Files.isRegularFile(path))
+            return DELETED;
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return DELETED;
+        } catch (IOException e) {
+            return unreadable(path, e);
+        }
+
+        // Saving without changing anything is common enough to be worth a digest. A strong one, since a collision
+        // would leave stale problems on screen.
+        var digest = digest(bytes);
+        if (cached != null && cached.status() != Report.FAILED && MessageDigest.isEqual(cached.digest(), digest))
+            return cached;
+
+        String source;
+        try {
+            // Strict, like `Files.readString()`.
+            source = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString();
+        } catch (CharacterCodingException e) {
+            return unreadable(path, e);
+        }
+
+        var name = path.toString();
+        try {
+            var result = ParserPool.parse(source);
+            var problems = new ArrayList<String>();
+            for (var problem : result.problems())
+                problems.add(name + ": " + problem.prettyError());
+            return new Entry(digest, Report.status(result), problems);
+        } catch (RuntimeException e) {
+            return new Entry(digest, Report.FAILED, List.of(Report.formatError(name, e.getMessage())));
+        }
+    }
+
+    private static Entry unreadable(Path path, IOException e) {
+        var problem = Report.formatError(path.toString(), "Cannot read file: " + e.getMessage());
+        return new Entry(null, Report.FAILED, List.of(problem));
+    }
+
+    private static byte[] digest(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM has to provide SHA-256.
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void printDifference(List<String> before, List<String> after, PrintStream out) {
+        for (var problem : before) {
+            if (!after.contains(problem))
+                out.print("- " + problem);
+        }
+        for (var problem : after) {
+            if (!before.contains(problem))
+                out.print("+ " + problem);
+        }
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        try {
+            if (watchService != null)
+                watchService.close();
+        } catch (IOException e) {
+            // Nothing left to watch anyway.
+        }
+    }
+}
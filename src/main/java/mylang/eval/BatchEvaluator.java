@@ -0,0 +1,294 @@
+package mylang.eval;
+
+import mylang.ast.*;
+import mylang.ast.Number;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Runs programs over columnar data: every name in a condition refers to an `int[]` column holding one value per
+// row. Instead of walking the AST once per row, each comparison is evaluated a whole column at a time into a
+// `Selection`, and nested if statements narrow down their parent's selection. Function calls in an if body are then
+// handed to a `RowHandler` once per selected row, along with their argument values for that row.
+//
+// The comparison kernels are plain loops over `int[]` that pack results 64 rows to a word without branching,
+// which the JIT unrolls and keeps in registers. Rows outside of the enclosing selection are skipped a word at a
+// time.
+//
+// Declarations bind a name to a constant for the statements that follow them in the same body, shadowing any
+// column of that name. That goes for call arguments as much as for conditions.
+public class BatchEvaluator {
+    @FunctionalInterface
+    public interface RowHandler {
+        // `arguments` holds the value of each of the call's arguments for `row`. The array is reused for the next
+        // row, so copy it to keep it.
+        void call(FunctionCallStatement call, int row, int[] arguments);
+    }
+
+    private enum Kernel {LT, LE, EQ}
+
+    private final Map<String, int[]> columns;
+    private final int rows;
+
+    // All columns must have the same length.
+    public BatchEvaluator(Map<String, int[]> columns) {
+        int rows = -1;
+        for (var entry : columns.entrySet()) {
+            int length = entry.getValue().length;
+            if (rows != -1 && length != rows)
+                throw new RuntimeException(String.format("Column `%s` has %d rows, expected %d", entry.getKey(),
+                        length, rows));
+            rows = length;
+        }
+        this.columns = Map.copyOf(columns);
+        this.rows = Math.max(rows, 0);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public Selection select(ConditionExpression condition) {
+        return select(condition, Selection.all(rows), Map.of());
+    }
+
+    // Selects the rows within `within` that satisfy `condition`.
+    public Selection select(ConditionExpression condition, Selection within) {
+        if (within.rows() != rows)
+            throw new RuntimeException("Selection doesn't match the number of rows!");
+        return select(condition, within, Map.of());
+    }
+
+    private int[] column(String name) {
+        var column = columns.get(name);
+        if (column == null)
+            throw new RuntimeException(String.format("Unknown column `%s`", name));
+        return column;
+    }
+
+    private static final int[] ROOT = {0};
+
+    private static class Frame {
+        private final List<Statement> statements;
+        private final Selection selection;
+        private final Map<String, Integer> constants;
+        // The profile ids of `statements`, null when not profiling.
+        private final int[] ids;
+        private int next;
+        private long rows = -1;
+
+        private Frame(List<Statement> statements, Selection selection, Map<String, Integer> constants, int[] ids) {
+            this.statements = statements;
+            this.selection = selection;
+            this.constants = constants;
+            this.ids = ids;
+        }
+
+        private long rows() {
+            if (rows == -1)
+                rows = selection.cardinality();
+            return rows;
+        }
+    }
+
+    // Runs `statement` over every row. Calls at the top level run for every row. Nested if statements are walked
+    // with an explicit stack, like the parser does, so deeply nested programs don't overflow the stack.
+    public void execute(Statement statement, RowHandler handler) {
+        execute(statement, handler, null);
+    }
+
+    // Like `execute(Statement, RowHandler)`, counting into `profile` unless it's null. The profile must be for
+    // `statement`.
+    public void execute(Statement statement, RowHandler handler, ExecutionProfile profile) {
+        if (profile != null && profile.program() != statement)
+            throw new RuntimeException("Profile is for a different program!");
+
+        var stack = new ArrayDeque<Frame>();
+        stack.push(new Frame(List.of(statement), Selection.all(rows), new HashMap<>(), profile == null ? null : ROOT));
+        while (!stack.isEmpty()) {
+            var frame = stack.peek();
+            if (frame.next == frame.statements.size()) {
+                stack.pop();
+                continue;
+            }
+
+            int id = frame.ids == null ? -1 : frame.ids[frame.next];
+            var next = frame.statements.get(frame.next++);
+            if (next instanceof IfStatement ifStatement) {
+                var selection = select(ifStatement.getConditionExpression(), frame.selection, frame.constants);
+                boolean empty = selection.isEmpty();
+                if (id != -1)
+                    profile.record(id, frame.rows(), empty ? 0 : selection.cardinality());
+                // Nothing inside can run, not even declarations matter then.
+                if (!empty)
+                    stack.push(new Frame(ifStatement.statements(), selection, new HashMap<>(frame.constants),
+                            id == -1 ? null : profile.children(id)));
+            } else if (next instanceof DeclarationStatement declaration) {
+                if (id != -1)
+                    profile.record(id, frame.rows(), 0);
+                frame.constants.put(declaration.name().name(), declaration.number().number());
+            } else if (next instanceof FunctionCallStatement call) {
+                if (id != -1)
+                    profile.record(id, frame.rows(), frame.rows());
+                call(call, frame, handler);
+            }
+        }
+    }
+
+    // Arguments are resolved once per call statement, leaving only the column reads for each row.
+    private void call(FunctionCallStatement call, Frame frame, RowHandler handler) {
+        var arguments = call.arguments();
+        int[] values = new int[arguments.size()];
+        int[][] argumentColumns = new int[arguments.size()][];
+        boolean constant = true;
+        for (int i = 0; i < values.length; i++) {
+            var value = resolve(arguments.get(i), frame.constants);
+            if (value instanceof int[] column) {
+                argumentColumns[i] = column;
+                constant = false;
+            } else {
+                values[i] = (Integer) value;
+            }
+        }
+
+        if (constant) {
+            frame.selection.forEach(row -> handler.call(call, row, values));
+            return;
+        }
+        frame.selection.forEach(row -> {
+            for (int i = 0; i < values.length; i++)
+                if (argumentColumns[i] != null)
+                    values[i] = argumentColumns[i][row];
+            handler.call(call, row, values);
+        });
+    }
+
+    private Selection select(ConditionExpression condition, Selection within, Map<String, Integer> constants) {
+        var lhs = resolve(condition.lhs(), constants);
+        var rhs = resolve(condition.rhs(), constants);
+        var op = condition.operator().string();
+
+        // Keep the column on the left.
+        if (!(lhs instanceof int[]) && rhs instanceof int[]) {
+            var swap = lhs;
+            lhs = rhs;
+            rhs = swap;
+            op = flip(op);
+        }
+
+        var out = new Selection(rows);
+        if (!(lhs instanceof int[] column)) {
+            // Two constants: all or nothing.
+            if (test((Integer) lhs, (Integer) rhs, op))
+                System.arraycopy(within.words, 0, out.words, 0, out.words.length);
+            return out;
+        }
+
+        // a > b is !(a <= b), a >= b is !(a < b), and a != b is !(a == b).
+        boolean negate = op.equals(">") || op.equals(">=") || op.equals("!=");
+        var kernel = switch (op) {
+            case "<", ">=" -> Kernel.LT;
+            case "<=", ">" -> Kernel.LE;
+            case "==", "!=" -> Kernel.EQ;
+            default -> throw new RuntimeException(String.format("Operator `%s` can't be evaluated", op));
+        };
+
+        if (rhs instanceof int[] other)
+            compare(kernel, column, other, within.words, out.words);
+        else compare(kernel, column, (Integer) rhs, within.words, out.words);
+
+        if (negate) {
+            var outWords = out.words;
+            var withinWords = within.words;
+            for (int i = 0; i < outWords.length; i++)
+                outWords[i] = ~outWords[i] & withinWords[i];
+        }
+        return out;
+    }
+
+    // Either an `int[]` column or an `Integer` constant.
+    private Object resolve(Object operand, Map<String, Integer> constants) {
+        if (operand instanceof Number number)
+            return number.number();
+        var name = ((Name) operand).name();
+        var constant = constants.get(name);
+        return constant != null ? constant : column(name);
+    }
+
+    static String flip(String op) {
+        return switch (op) {
+            case "<" -> ">";
+            case "<=" -> ">=";
+            case ">" -> "<";
+            case ">=" -> "<=";
+            default -> op;
+        };
+    }
+
+    static boolean test(int a, int b, String op) {
+        return switch (op) {
+            case "<" -> a < b;
+            case "<=" -> a <= b;
+            case ">" -> a > b;
+            case ">=" -> a >= b;
+            case "==" -> a == b;
+            case "!=" -> a != b;
+            default -> throw new RuntimeException(String.format("Operator `%s` can't be evaluated", op));
+        };
+    }
+
+    // One loop per kernel, so that each one stays branch-free in the inner loop.
+    private void compare(Kernel kernel, int[] column, int constant, long[] within, long[] out) {
+        for (int i = 0; i < out.length; i++) {
+            long mask = within[i];
+            if (mask == 0)
+                continue;
+            int base = i << 6;
+            int end = Math.min(64, rows - base);
+            long bits = 0;
+            switch (kernel) {
+                case LT -> {
+                    for (int b = 0; b < end; b++)
+                        bits |= (column[base + b] < constant ? 1L : 0L) << b;
+                }
+                case LE -> {
+                    for (int b = 0; b < end; b++)
+                        bits |= (column[base + b] <= constant ? 1L : 0L) << b;
+                }
+                case EQ -> {
+                    for (int b = 0; b < end; b++)
+                        bits |= (column[base + b] == constant ? 1L : 0L) << b;
+                }
+            }
+            out[i] = bits & mask;
+        }
+    }
+
+    private void compare(Kernel kernel, int[] column, int[] other, long[] within, long[] out) {
+        for (int i = 0; i < out.length; i++) {
+            long mask = within[i];
+            if (mask == 0)
+                continue;
+            int base = i << 6;
+            int end = Math.min(64, rows - base);
+            long bits = 0;
+            switch (kernel) {
+                case LT -> {
+                    for (int b = 0; b < end; b++)
+                        bits |= (column[base + b] < other[base + b] ? 1L : 0L) << b;
+                }
+                case LE -> {
+                    for (int b = 0; b < end; b++)
+                        bits |= (column[base + b] <= other[base + b] ? 1L : 0L) << b;
+                }
+                case EQ -> {
+                    for (int b = 0; b < end; b++)
+                        bits |= (column[base + b] == other[base + b] ? 1L : 0L) << b;
+                }
+            }
+            out[i] = bits & mask;
+        }
+    }
+}
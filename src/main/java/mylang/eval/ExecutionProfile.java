@@ -0,0 +1,169 @@
+package mylang.eval;
+
+import mylang.ast.*;
+import mylang.ast.Number;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts how a program's statements fare when it runs, to find the rules worth reordering or pruning. Pass it to
+// `BatchEvaluator.execute()`, which records into it; without one, nothing is counted.
+//
+// Statements are identified by their position in the program, numbered in pre-order from 0 for the top-level
+// statement, rather than by identity, since interning may share one node between several places. Every statement
+// has three counters:
+//
+//   executions  times it was reached
+//   rows        rows it was reached with
+//   matched     rows an if's condition held for, or rows a call ran for; always 0 for declarations
+//
+// Counters are `LongAdder`s, so evaluators on several threads can share one profile without contending on a single
+// word. Evaluation records once per statement per batch, not per row, so the cost is a few additions plus counting
+// the bits of the selections involved.
+public class ExecutionProfile {
+    public record Counts(int id, Statement statement, long executions, long rows, long matched) {}
+
+    private final Statement program;
+    private final Statement[] statements;
+    // The ids of the statements in each if's body, indexed by the if's id.
+    private final int[][] children;
+    private final LongAdder[] counters;
+
+    public ExecutionProfile(Statement program) {
+        this.program = program;
+        var statements = new ArrayList<Statement>();
+        var children = new ArrayList<int[]>();
+        add(program, statements, children);
+
+        // Walks the ifs with an explicit stack, numbering each body right after its if.
+        var open = new ArrayDeque<Integer>();
+        var positions = new ArrayDeque<Integer>();
+        if (program instanceof IfStatement) {
+            open.push(0);
+            positions.push(0);
+        }
+        while (!open.isEmpty()) {
+            int parent = open.peek();
+            int next = positions.pop();
+            var body = ((IfStatement) statements.get(parent)).statements();
+            if (next == body.size()) {
+                open.pop();
+                continue;
+            }
+            positions.push(next + 1);
+            int id = add(body.get(next), statements, children);
+            children.get(parent)[next] = id;
+            if (body.get(next) instanceof IfStatement) {
+                open.push(id);
+                positions.push(0);
+            }
+        }
+
+        this.statements = statements.toArray(Statement[]::new);
+        this.children = children.toArray(int[][]::new);
+        counters = new LongAdder[this.statements.length * 3];
+        for (int i = 0; i < counters.length; i++)
+            counters[i] = new LongAdder();
+    }
+
+    private static int add(Statement statement, List<Statement> statements, List<int[]> children) {
+        statements.add(statement);
+        children.add(statement instanceof IfStatement ifStatement ? new int[ifStatement.statements().size()] : null);
+        return statements.size() - 1;
+    }
+
+    public Statement program() {
+        return program;
+    }
+
+    public int size() {
+        return statements.length;
+    }
+
+    int[] children(int id) {
+        return children[id];
+    }
+
+    void record(int id, long rows, long matched) {
+        counters[id * 3].increment();
+        counters[id * 3 + 1].add(rows);
+        counters[id * 3 + 2].add(matched);
+    }
+
+    // The counts so far. Counting goes on meanwhile, so the counters of different statements may be off from each
+    // other by whatever ran during the snapshot.
+    public List<Counts> snapshot() {
+        return snapshot(false);
+    }
+
+    // Like `snapshot()`, but also zeroes every counter, without losing any counts recorded in the meantime.
+    public List<Counts> snapshotAndReset() {
+        return snapshot(true);
+    }
+
+    public void reset() {
+        for (var counter : counters)
+            counter.reset();
+    }
+
+    private List<Counts> snapshot(boolean reset) {
+        var out = new ArrayList<Counts>(statements.length);
+        for (int id = 0; id < statements.length; id++)
+            out.add(new Counts(id, statements[id], sum(id * 3, reset), sum(id * 3 + 1, reset),
+                    sum(id * 3 + 2, reset)));
+        return out;
+    }
+
+    private long sum(int counter, boolean reset) {
+        return reset ? counters[counter].sumThenReset() : counters[counter].sum();
+    }
+
+    // Writes one tab-separated line per statement, after a header line, with the statement's kind, span and a short
+    // description: the condition of an if, the name of a call or the name declared.
+    //
+    //   id  kind  start  end  executions  rows  matched  statement
+    public void export(Appendable out) {
+        try {
+            out.append("id\tkind\tstart\tend\texecutions\trows\tmatched\tstatement\n");
+            for (var counts : snapshot()) {
+                var statement = counts.statement();
+                long span = statement.span();
+                out.append(Integer.toString(counts.id())).append('\t').append(kind(statement)).append('\t')
+                        .append(span == Span.NONE ? "-" : Integer.toString(Span.start(span))).append('\t')
+                        .append(span == Span.NONE ? "-" : Integer.toString(Span.end(span))).append('\t')
+                        .append(Long.toString(counts.executions())).append('\t')
+                        .append(Long.toString(counts.rows())).append('\t')
+                        .append(Long.toString(counts.matched())).append('\t')
+                        .append(describe(statement)).append('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String kind(Statement statement) {
+        if (statement instanceof IfStatement)
+            return "if";
+        if (statement instanceof DeclarationStatement)
+            return "val";
+        return "call";
+    }
+
+    private static String describe(Statement statement) {
+        if (statement instanceof IfStatement ifStatement) {
+            var condition = ifStatement.getConditionExpression();
+            return operand(condition.lhs()) + " " + condition.operator().string() + " " + operand(condition.rhs());
+        }
+        if (statement instanceof DeclarationStatement declaration)
+            return declaration.name().name();
+        return ((FunctionCallStatement) statement).name().name();
+    }
+
+    private static String operand(Object operand) {
+        return operand instanceof Name name ? name.name() : ((Number) operand).number().toString();
+    }
+}
@@ -0,0 +1,199 @@
+package mylang.eval;
+
+import mylang.CompilationResult;
+import mylang.ast.*;
+import mylang.ast.Number;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+// Matches events against many programs at once. Each program is a rule, identified by its position in the list the
+// index was built from, and an event matches a rule when it satisfies the condition of the program's top-level if.
+//
+// Conditions comparing a name with a number are grouped by name, and then by operator, with the numbers kept
+// sorted. The rules an event value matches then form a contiguous run of each sorted array, found with a binary
+// search, so matching costs about the log of the number of rules plus the number of matches. Rules that can't be
+// indexed like that, such as ones comparing two names, are tested one by one.
+//
+// An event maps names to values. A rule whose condition refers to a name missing from the event doesn't match.
+// Programs that don't start with an if match every event, failed ones none.
+public class RuleIndex {
+    // Rules in ascending order of their number, packed as number << 32 | rule so they sort with a plain long sort.
+    private static class Field {
+        private final long[] lessThan, lessEqual, greaterThan, greaterEqual, equal, notEqual;
+
+        private Field(FieldBuilder builder) {
+            lessThan = sorted(builder.lt);
+            lessEqual = sorted(builder.le);
+            greaterThan = sorted(builder.gt);
+            greaterEqual = sorted(builder.ge);
+            equal = sorted(builder.eq);
+            notEqual = sorted(builder.ne);
+        }
+
+        private void match(int value, IntConsumer out) {
+            // value < n for every n past the ones <= value, and so on.
+            emit(lessThan, after(lessThan, value), lessThan.length, out);
+            emit(lessEqual, before(lessEqual, value), lessEqual.length, out);
+            emit(greaterThan, 0, before(greaterThan, value), out);
+            emit(greaterEqual, 0, after(greaterEqual, value), out);
+            emit(equal, before(equal, value), after(equal, value), out);
+            emit(notEqual, 0, before(notEqual, value), out);
+            emit(notEqual, after(notEqual, value), notEqual.length, out);
+        }
+    }
+
+    // Collects the rules of a field while the index is built. Only the sorted arrays of the `Field` built from it
+    // are kept.
+    private static class FieldBuilder {
+        private final List<Long> lt = new ArrayList<>(), le = new ArrayList<>(), gt = new ArrayList<>(),
+                ge = new ArrayList<>(), eq = new ArrayList<>(), ne = new ArrayList<>();
+
+        private void add(String op, int number, int rule) {
+            long packed = (long) number << 32 | rule;
+            switch (op) {
+                case "<" -> lt.add(packed);
+                case "<=" -> le.add(packed);
+                case ">" -> gt.add(packed);
+                case ">=" -> ge.add(packed);
+                case "==" -> eq.add(packed);
+                case "!=" -> ne.add(packed);
+                default -> throw new RuntimeException(String.format("Operator `%s` can't be evaluated", op));
+            }
+        }
+    }
+
+    private record Residual(int rule, ConditionExpression condition) {}
+
+    private final int size;
+    private final Map<String, Field> fields = new HashMap<>();
+    private final int[] always;
+    private final List<Residual> residuals = new ArrayList<>();
+
+    public RuleIndex(List<CompilationResult> programs) {
+        size = programs.size();
+        var always = new ArrayList<Integer>();
+        var builders = new HashMap<String, FieldBuilder>();
+        for (int rule = 0; rule < size; rule++) {
+            var root = programs.get(rule).astRoot();
+            if (root == null)
+                continue;
+            if (!(root instanceof IfStatement ifStatement)) {
+                always.add(rule);
+                continue;
+            }
+
+            var condition = ifStatement.getConditionExpression();
+            var lhs = condition.lhs();
+            var rhs = condition.rhs();
+            var op = condition.operator().string();
+            if (lhs instanceof Name name && rhs instanceof Number number) {
+                builders.computeIfAbsent(name.name(), k -> new FieldBuilder()).add(op, number.number(), rule);
+            } else if (lhs instanceof Number number && rhs instanceof Name name) {
+                builders.computeIfAbsent(name.name(), k -> new FieldBuilder()).add(BatchEvaluator.flip(op),
+                        number.number(), rule);
+            } else if (lhs instanceof Number a && rhs instanceof Number b) {
+                if (BatchEvaluator.test(a.number(), b.number(), op))
+                    always.add(rule);
+            } else {
+                residuals.add(new Residual(rule, condition));
+            }
+        }
+        this.always = always.stream().mapToInt(Integer::intValue).toArray();
+        for (var entry : builders.entrySet())
+            fields.put(entry.getKey(), new Field(entry.getValue()));
+    }
+
+    // The number of rules, matching or not.
+    public int size() {
+        return size;
+    }
+
+    // Hands every rule that `event` matches to `out`, in no particular order.
+    public void match(Map<String, Integer> event, IntConsumer out) {
+        for (int rule : always)
+            out.accept(rule);
+
+        // Only look at the fields of the event, the index may know many more.
+        if (event.size() <= fields.size()) {
+            for (var entry : event.entrySet()) {
+                var field = fields.get(entry.getKey());
+                if (field != null)
+                    field.match(entry.getValue(), out);
+            }
+        } else {
+            for (var entry : fields.entrySet()) {
+                var value = event.get(entry.getKey());
+                if (value != null)
+                    entry.getValue().match(value, out);
+            }
+        }
+
+        for (var residual : residuals) {
+            var lhs = value(residual.condition.lhs(), event);
+            var rhs = value(residual.condition.rhs(), event);
+            if (lhs != null && rhs != null && BatchEvaluator.test(lhs, rhs, residual.condition.operator().string()))
+                out.accept(residual.rule);
+        }
+    }
+
+    // The rules that `event` matches, in ascending order.
+    public int[] match(Map<String, Integer> event) {
+        // Each rule sits in one place in the index, so nothing is reported twice.
+        var matches = new int[][]{new int[16]};
+        int[] count = {0};
+        match(event, rule -> {
+            if (count[0] == matches[0].length)
+                matches[0] = Arrays.copyOf(matches[0], count[0] * 2);
+            matches[0][count[0]++] = rule;
+        });
+        var out = Arrays.copyOf(matches[0], count[0]);
+        Arrays.sort(out);
+        return out;
+    }
+
+    private static Integer value(Object operand, Map<String, Integer> event) {
+        if (operand instanceof Number number)
+            return number.number();
+        return event.get(((Name) operand).name());
+    }
+
+    private static long[] sorted(List<Long> rules) {
+        var out = new long[rules.size()];
+        for (int i = 0; i < out.length; i++)
+            out[i] = rules.get(i);
+        Arrays.sort(out);
+        return out;
+    }
+
+    // The index of the first rule whose number is >= value.
+    private static int before(long[] rules, int value) {
+        return search(rules, (long) value << 32);
+    }
+
+    // The index of the first rule whose number is > value.
+    private static int after(long[] rules, int value) {
+        return value == Integer.MAX_VALUE ? rules.length : search(rules, (long) (value + 1) << 32);
+    }
+
+    // The index of the first packed rule >= key.
+    private static int search(long[] rules, long key) {
+        int low = 0, high = rules.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (rules[mid] < key)
+                low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private static void emit(long[] rules, int from, int to, IntConsumer out) {
+        for (int i = from; i < to; i++)
+            out.accept((int) rules[i]);
+    }
+}
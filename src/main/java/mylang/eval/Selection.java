@@ -0,0 +1,66 @@
+package mylang.eval;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// A bitmap of the rows a condition selected, 64 rows per word. Bits past the last row are always clear.
+public class Selection {
+    final long[] words;
+    private final int rows;
+
+    Selection(int rows) {
+        this.rows = rows;
+        words = new long[wordCount(rows)];
+    }
+
+    static int wordCount(int rows) {
+        return (rows + 63) >>> 6;
+    }
+
+    static Selection all(int rows) {
+        var selection = new Selection(rows);
+        Arrays.fill(selection.words, -1L);
+        selection.clearTail();
+        return selection;
+    }
+
+    // Clears the bits that don't stand for a row.
+    void clearTail() {
+        int tail = rows & 63;
+        if (tail != 0)
+            words[words.length - 1] &= (1L << tail) - 1;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public boolean get(int row) {
+        return (words[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (long word : words)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words)
+            if (word != 0)
+                return false;
+        return true;
+    }
+
+    // Visits the selected rows in ascending order.
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                action.accept((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package mylang.json;
+
+import mylang.CompilationResult;
+import mylang.ParseListener;
+import mylang.Problem;
+import mylang.ast.*;
+import mylang.ast.Number;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+// Writes compile results as JSON, straight to a stream, without building a document first:
+//
+//   {"ast": <statement or null>, "failed": <bool>, "problems": [{"line", "column", "offset", "description"}]}
+//
+// Every node is an object with a "kind" and a "span" of [start, end) source offsets, or null for nodes without
+// one. Ifs have "condition" and "body", conditions "operator", "lhs" and "rhs", declarations ("val") "name" and
+// "value", calls "name" and "arguments", names "name" and numbers "value".
+//
+// Either hand over a whole result with `write()`, or pass the emitter to `Parser.parse(ParseListener)` and then
+// call `finish()` with the result. The latter writes the AST as it is parsed. Since output can't be taken back, an
+// if statement that turns out to be broken stays in the output, marked with "discarded": true.
+//
+// Output is ASCII only, anything else is escaped. Chars are collected in a buffer of fixed size that's reused for
+// every flush. I/O errors are thrown as `UncheckedIOException`.
+public class JsonEmitter implements ParseListener {
+    private static final int BUFFER_SIZE = 8192;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Appendable appendable;
+    private final OutputStream stream;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final CharBuffer chars = CharBuffer.wrap(buffer);
+    private byte[] bytes;
+    private int length;
+
+    // Whether the array being written at each nesting level has elements yet. Level 0 is the top-level statement.
+    private boolean[] hasElements = new boolean[16];
+    private int level;
+    private boolean started;
+
+    public JsonEmitter(Appendable out) {
+        appendable = out;
+        stream = null;
+    }
+
+    public JsonEmitter(OutputStream out) {
+        appendable = null;
+        stream = out;
+        bytes = new byte[BUFFER_SIZE];
+    }
+
+    // Writes the whole result in one go.
+    public void write(CompilationResult result) {
+        start();
+        if (result.astRoot() != null)
+            statements(result.astRoot());
+        finish(result);
+    }
+
+    // Ends the document with the result's problems. The AST must have been written already, by `write()` or by
+    // parsing with this emitter as the listener.
+    public void finish(CompilationResult result) {
+        if (!started)
+            start();
+        if (!hasElements[0])
+            append("null");
+        append(",\"failed\":").append(result.failed() ? "true" : "false").append(",\"problems\":[");
+        boolean first = true;
+        for (var problem : result.problems()) {
+            if (!first)
+                append(',');
+            first = false;
+            problem(problem);
+        }
+        append("]}");
+        flush();
+        started = false;
+        level = 0;
+        hasElements[0] = false;
+    }
+
+    private void start() {
+        started = true;
+        level = 0;
+        hasElements[0] = false;
+        append("{\"ast\":");
+    }
+
+    // Writes `root` and everything nested in it. If bodies are kept on a stack rather than recursed into.
+    private void statements(Statement root) {
+        var bodies = new ArrayDeque<IfStatement>();
+        var positions = new ArrayDeque<Integer>();
+        statement(root, bodies, positions);
+        while (!bodies.isEmpty()) {
+            var body = bodies.peek();
+            int next = positions.pop();
+            if (next < body.statements().size()) {
+                positions.push(next + 1);
+                statement(body.statements().get(next), bodies, positions);
+            } else {
+                bodies.pop();
+                exitIf(body.span());
+            }
+        }
+    }
+
+    private void statement(Statement statement, ArrayDeque<IfStatement> bodies, ArrayDeque<Integer> positions) {
+        if (statement instanceof IfStatement node) {
+            enterIf();
+            condition(node.getConditionExpression());
+            bodies.push(node);
+            positions.push(0);
+        } else if (statement instanceof DeclarationStatement node) {
+            declaration(node.name(), node.number(), node.span());
+        } else if (statement instanceof FunctionCallStatement node) {
+            call(node.name());
+            for (var argument : node.arguments())
+                argument(argument);
+            exitCall(node.span());
+        }
+    }
+
+    // Separates the next statement from the one before it, wherever it goes.
+    private void element() {
+        if (!started)
+            start();
+        if (hasElements[level])
+            append(',');
+        hasElements[level] = true;
+    }
+
+    private void push() {
+        if (++level == hasElements.length)
+            hasElements = Arrays.copyOf(hasElements, level * 2);
+        hasElements[level] = false;
+    }
+
+    @Override
+    public void enterIf() {
+        element();
+        append("{\"kind\":\"if\"");
+    }
+
+    @Override
+    public void condition(ConditionExpression condition) {
+        append(",\"condition\":{\"kind\":\"condition\",\"operator\":");
+        string(condition.operator().string());
+        append(",\"lhs\":");
+        operand(condition.lhs());
+        append(",\"rhs\":");
+        operand(condition.rhs());
+        span(condition.span());
+        append("},\"body\":[");
+        push();
+    }
+
+    @Override
+    public void exitIf(long span) {
+        level--;
+        append(']');
+        span(span);
+        append('}');
+    }
+
+    @Override
+    public void discardIf() {
+        level--;
+        append("],\"discarded\":true}");
+    }
+
+    @Override
+    public void declaration(Name name, Number number, long span) {
+        element();
+        append("{\"kind\":\"val\",\"name\":");
+        operand(name);
+        append(",\"value\":");
+        operand(number);
+        span(span);
+        append('}');
+    }
+
+    @Override
+    public void call(Name name) {
+        element();
+        append("{\"kind\":\"call\",\"name\":");
+        operand(name);
+        append(",\"arguments\":[");
+        push();
+    }
+
+    @Override
+    public void argument(Object argument) {
+        if (hasElements[level])
+            append(',');
+        hasElements[level] = true;
+        operand(argument);
+    }
+
+    @Override
+    public void exitCall(long span) {
+        level--;
+        append(']');
+        span(span);
+        append('}');
+    }
+
+    private void operand(Object operand) {
+        if (operand instanceof Name name) {
+            append("{\"kind\":\"name\",\"name\":");
+            string(name.name());
+            span(name.span());
+        } else {
+            var number = (Number) operand;
+            append("{\"kind\":\"number\",\"value\":").append(number.number().toString());
+            span(number.span());
+        }
+        append('}');
+    }
+
+    private void span(long span) {
+        append(",\"span\":");
+        if (span == Span.NONE)
+            append("null");
+        else append('[').append(Integer.toString(Span.start(span))).append(',')
+                .append(Integer.toString(Span.end(span))).append(']');
+    }
+
+    private void problem(Problem problem) {
+        if (problem.hasPosition()) {
+            append("{\"line\":").append(Integer.toString(problem.line()));
+            append(",\"column\":").append(Integer.toString(problem.column()));
+            append(",\"offset\":").append(Integer.toString(problem.offset()));
+        } else append("{\"line\":null,\"column\":null,\"offset\":null");
+        append(",\"description\":");
+        string(problem.description());
+        append('}');
+    }
+
+    private void string(String value) {
+        append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"' -> append("\\\"");
+                case '\\' -> append("\\\\");
+                case '\n' -> append("\\n");
+                case '\t' -> append("\\t");
+                default -> {
+                    if (ch < 0x20 || ch >= 0x7F)
+                        append("\\u").append(HEX[ch >> 12]).append(HEX[(ch >> 8) & 0xF]).append(HEX[(ch >> 4) & 0xF])
+                                .append(HEX[ch & 0xF]);
+                    else append(ch);
+                }
+            }
+        }
+        append('"');
+    }
+
+    private JsonEmitter append(char ch) {
+        if (length == buffer.length)
+            drain();
+        buffer[length++] = ch;
+        return this;
+    }
+
+    private JsonEmitter append(String value) {
+        for (int i = 0; i < value.length(); i++)
+            append(value.charAt(i));
+        return this;
+    }
+
+    // Hands the buffered chars to the destination.
+    private void drain() {
+        try {
+            if (stream != null) {
+                // Everything is ASCII, so each char is one byte.
+                for (int i = 0; i < length; i++)
+                    bytes[i] = (byte) buffer[i];
+                stream.write(bytes, 0, length);
+            } else if (appendable instanceof Writer writer) {
+                writer.write(buffer, 0, length);
+            } else if (appendable instanceof StringBuilder builder) {
+                builder.append(buffer, 0, length);
+            } else {
+                appendable.append(chars, 0, length);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        length = 0;
+    }
+
+    public void flush() {
+        drain();
+        try {
+            if (stream != null)
+                stream.flush();
+            else if (appendable instanceof Writer writer)
+                writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package mylang.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("mylang.Compilation")
+@Label("Compilation")
+@Category("mylang")
+@Description("A single Parser.parse() call")
+@StackTrace(false)
+class CompilationEvent extends jdk.jfr.Event {
+    @Label("Failed")
+    boolean failed;
+
+    @Label("Characters Scanned")
+    long chars;
+
+    @Label("Tokens")
+    long tokens;
+
+    @Label("Peeks")
+    long peeks;
+
+    @Label("Re-lexes")
+    long relexes;
+
+    @Label("Statements")
+    long statements;
+
+    @Label("Recovery Attempts")
+    long recoveries;
+
+    @Label("Problems")
+    long problems;
+
+    @Label("Init Time")
+    @Timespan
+    long initNanos;
+
+    @Label("Lex Time")
+    @Timespan
+    long lexNanos;
+}
@@ -0,0 +1,37 @@
+package mylang.metrics;
+
+import mylang.Problem;
+import mylang.tokeniser.Type;
+
+// Instrumentation hooks for the tokenizer, parser and error manager. Every hook is a no-op by default, so an
+// implementation only overrides what it cares about. Instances are used by a single compilation at a time and
+// don't need to be thread-safe.
+//
+// When no metrics are requested the compiler uses `NONE`. Call sites stay monomorphic in that case, so the JIT
+// inlines the empty bodies away and the instrumentation costs next to nothing.
+public interface CompilerMetrics {
+    CompilerMetrics NONE = new CompilerMetrics() {};
+
+    default void compilationStarted() {}
+
+    default void compilationFinished(boolean failed) {}
+
+    // Characters consumed while producing a token, including leading whitespace. Re-lexed tokens are counted again.
+    default void charsScanned(int count) {}
+
+    default void tokenProduced(Type type) {}
+
+    default void tokenPeeked() {}
+
+    // A token lexed again at the position it was last peeked at.
+    default void tokenRelexed() {}
+
+    default void statementParsed() {}
+
+    // The parser skipped to the next line to resume after a bad statement.
+    default void recoveryAttempted() {}
+
+    default void problemEmitted(Problem problem) {}
+
+    default void phaseCompleted(Phase phase, long nanos) {}
+}
@@ -0,0 +1,114 @@
+package mylang.metrics;
+
+import mylang.Problem;
+import mylang.tokeniser.Type;
+
+// Plain counters, handy for tests and one-off diagnostics. Not thread-safe.
+public class CountingMetrics implements CompilerMetrics {
+    private long compilations;
+    private long chars;
+    private long tokens;
+    private long peeks;
+    private long relexes;
+    private long statements;
+    private long recoveries;
+    private long problems;
+    private final long[] phaseNanos = new long[Phase.values().length];
+
+    @Override
+    public void compilationStarted() {
+        compilations++;
+    }
+
+    @Override
+    public void charsScanned(int count) {
+        chars += count;
+    }
+
+    @Override
+    public void tokenProduced(Type type) {
+        tokens++;
+    }
+
+    @Override
+    public void tokenPeeked() {
+        peeks++;
+    }
+
+    @Override
+    public void tokenRelexed() {
+        relexes++;
+    }
+
+    @Override
+    public void statementParsed() {
+        statements++;
+    }
+
+    @Override
+    public void recoveryAttempted() {
+        recoveries++;
+    }
+
+    @Override
+    public void problemEmitted(Problem problem) {
+        problems++;
+    }
+
+    @Override
+    public void phaseCompleted(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    public long compilations() {
+        return compilations;
+    }
+
+    public long charsScanned() {
+        return chars;
+    }
+
+    public long tokens() {
+        return tokens;
+    }
+
+    public long peeks() {
+        return peeks;
+    }
+
+    public long relexes() {
+        return relexes;
+    }
+
+    public long statements() {
+        return statements;
+    }
+
+    public long recoveries() {
+        return recoveries;
+    }
+
+    public long problems() {
+        return problems;
+    }
+
+    public long phaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder("CountingMetrics{");
+        builder.append("compilations=").append(compilations);
+        builder.append(", chars=").append(chars);
+        builder.append(", tokens=").append(tokens);
+        builder.append(", peeks=").append(peeks);
+        builder.append(", relexes=").append(relexes);
+        builder.append(", statements=").append(statements);
+        builder.append(", recoveries=").append(recoveries);
+        builder.append(", problems=").append(problems);
+        for (var phase : Phase.values())
+            builder.append(", ").append(phase.name().toLowerCase()).append("Nanos=").append(phaseNanos(phase));
+        return builder.append("}").toString();
+    }
+}
@@ -0,0 +1,96 @@
+package mylang.metrics;
+
+import mylang.Problem;
+import mylang.tokeniser.Type;
+
+// Publishes compilations as `mylang.Compilation` and `mylang.Problem` Flight Recorder events. Counters are
+// aggregated in plain fields and committed as a single event when the compilation finishes. If no recording has
+// the events enabled, nothing gets committed. Use one instance per compilation.
+public class JfrMetrics implements CompilerMetrics {
+    private CompilationEvent event;
+    private long initNanos;
+
+    @Override
+    public void compilationStarted() {
+        event = new CompilationEvent();
+        event.initNanos = initNanos;
+        event.begin();
+    }
+
+    @Override
+    public void compilationFinished(boolean failed) {
+        if (event == null)
+            return;
+        event.end();
+        if (event.shouldCommit()) {
+            event.failed = failed;
+            event.commit();
+        }
+        event = null;
+    }
+
+    @Override
+    public void charsScanned(int count) {
+        if (event != null)
+            event.chars += count;
+    }
+
+    @Override
+    public void tokenProduced(Type type) {
+        if (event != null)
+            event.tokens++;
+    }
+
+    @Override
+    public void tokenPeeked() {
+        if (event != null)
+            event.peeks++;
+    }
+
+    @Override
+    public void tokenRelexed() {
+        if (event != null)
+            event.relexes++;
+    }
+
+    @Override
+    public void statementParsed() {
+        if (event != null)
+            event.statements++;
+    }
+
+    @Override
+    public void recoveryAttempted() {
+        if (event != null)
+            event.recoveries++;
+    }
+
+    @Override
+    public void problemEmitted(Problem problem) {
+        if (event != null)
+            event.problems++;
+
+        var problemEvent = new ProblemEvent();
+        if (problemEvent.isEnabled()) {
+            problemEvent.description = problem.description();
+            problemEvent.line = problem.line();
+            problemEvent.column = problem.column();
+            problemEvent.commit();
+        }
+    }
+
+    @Override
+    public void phaseCompleted(Phase phase, long nanos) {
+        switch (phase) {
+            // The tokenizer is built before `parse()` starts the event.
+            case INIT -> initNanos = nanos;
+            case LEX -> {
+                if (event != null)
+                    event.lexNanos += nanos;
+            }
+            case PARSE -> {
+                // Already covered by the event's own duration.
+            }
+        }
+    }
+}
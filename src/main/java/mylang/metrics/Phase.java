@@ -0,0 +1,10 @@
+package mylang.metrics;
+
+public enum Phase {
+    // Building the tokenizer and its state from the source.
+    INIT,
+    // Time spent inside the tokenizer. Lexing is interleaved with parsing, so this is accumulated per token.
+    LEX,
+    // The whole `Parser.parse()` call, lexing included.
+    PARSE
+}
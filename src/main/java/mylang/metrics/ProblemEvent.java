@@ -0,0 +1,21 @@
+package mylang.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("mylang.Problem")
+@Label("Problem")
+@Category("mylang")
+@StackTrace(false)
+class ProblemEvent extends jdk.jfr.Event {
+    @Label("Description")
+    String description;
+
+    @Label("Line")
+    int line;
+
+    @Label("Column")
+    int column;
+}
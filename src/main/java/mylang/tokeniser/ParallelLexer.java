@@ -0,0 +1,158 @@
+package mylang.tokeniser;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static mylang.Utils.*;
+
+// Lexes large sources on several cores. The source is split into shards on line boundaries, each shard is lexed
+// by a tokenizer of its own, and the shards' tokens are concatenated into one `TokenBuffer`. That's a `TokenFeed`,
+// which a parser consumes through `Parser.reset(CharSequence, TokenFeed)`, or a tokenizer through
+// `Tokenizer.reset(CharSequence, TokenFeed)`.
+//
+// Tokens don't always end with their line: a name carries on into the next line if that one starts with a letter,
+// and likewise for numbers and for `<`, `>`, `=` and `!` followed by `=`. So a line only starts a shard if the
+// last char before it can't run on into its first char. The shard's tokenizer then starts at the end of the line
+// before, which is exactly where lexing the whole source would have left it.
+public class ParallelLexer {
+    // Shards shorter than this aren't worth handing to another core.
+    public static final int MIN_SHARD_LENGTH = 1 << 16;
+
+    // A rough guess to size token buffers with, so that they rarely have to grow.
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private ParallelLexer() {}
+
+    public static TokenBuffer lex(CharSequence source) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return lex(source, Math.max(1, Math.min(cores, source.length() / MIN_SHARD_LENGTH)));
+    }
+
+    // Lexes with up to `shards` shards, on the common fork-join pool. There may be fewer shards if the source
+    // doesn't have enough lines to split on.
+    public static TokenBuffer lex(CharSequence source, int shards) {
+        if (source == null || source.length() == 0)
+            throw new RuntimeException("Invalid input!");
+        if (shards < 1)
+            throw new RuntimeException("Shard count must be positive!");
+
+        int length = source.length();
+        var bytes = new byte[length];
+        IntStream.range(0, shards).parallel()
+                .forEach(i -> Scanner.narrow(source, bytes, split(length, shards, i), split(length, shards, i + 1)));
+        var base = new Tokenizer.State();
+        base.reset(source, bytes);
+
+        var starts = shardStarts(bytes, base.sourceEnd(), shards);
+        int count = starts.length;
+        // Lines before each shard, counted per shard and then summed up.
+        var newlines = new int[count];
+        IntStream.range(1, count).parallel().forEach(i -> newlines[i] = countNewlines(bytes, starts[i - 1], starts[i]));
+        for (int i = 1; i < count; i++)
+            newlines[i] += newlines[i - 1];
+
+        var buffers = new TokenBuffer[count];
+        IntStream.range(0, count).parallel().forEach(i -> {
+            int end = i + 1 < count ? starts[i + 1] : Integer.MAX_VALUE;
+            buffers[i] = lexShard(base, bytes, starts[i], newlines[i], end);
+        });
+
+        if (count == 1)
+            return buffers[0];
+
+        int total = 0;
+        for (var buffer : buffers)
+            total += buffer.size();
+        var tokens = new TokenBuffer(source, bytes, total);
+        for (var buffer : buffers) {
+            tokens.addAll(buffer);
+            // Tokens after a failure are of no use, a tokenizer would stop there too.
+            if (!buffer.complete()) {
+                tokens.markIncomplete();
+                break;
+            }
+        }
+        return tokens;
+    }
+
+    private static int split(int length, int parts, int index) {
+        return (int) ((long) length * index / parts);
+    }
+
+    // Offsets of the lines that start shards, beginning with 0.
+    private static int[] shardStarts(byte[] bytes, int sourceEnd, int shards) {
+        var starts = new int[shards];
+        int count = 1;
+        for (int i = 1; i < shards; i++) {
+            int start = nextShardStart(bytes, Math.max(split(sourceEnd, shards, i), starts[count - 1]), sourceEnd);
+            if (start == -1)
+                break;
+            starts[count++] = start;
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    // The first line at or after `from` that can start a shard, or -1 if there's none.
+    private static int nextShardStart(byte[] bytes, int from, int sourceEnd) {
+        while (true) {
+            int newline = Scanner.findNewline(bytes, from, sourceEnd);
+            if (newline >= sourceEnd)
+                return -1;
+            int lineStart = newline;
+            while (bytes[lineStart] == '\n')
+                lineStart++;
+            int lastChar = newline;
+            while (lastChar > 0 && bytes[lastChar - 1] == '\n')
+                lastChar--;
+            if (lastChar > 0 && !runsOn((char) bytes[lastChar - 1], (char) bytes[lineStart]))
+                return lineStart;
+            from = lineStart;
+        }
+    }
+
+    private static boolean runsOn(char last, char next) {
+        if (isAlpha(last))
+            return isAlpha(next);
+        if (isDigit(last))
+            return isDigit(next);
+        return next == '=' && (last == '<' || last == '>' || last == '=' || last == '!');
+    }
+
+    private static int countNewlines(byte[] bytes, int from, int to) {
+        int count = 0;
+        for (int i = Scanner.findNewline(bytes, from, to); i < to; i = Scanner.findNewline(bytes, i + 1, to))
+            count++;
+        return count;
+    }
+
+    // Lexes the tokens starting in [start, end). `newlines` is how many lines precede `start`.
+    private static TokenBuffer lexShard(Tokenizer.State base, byte[] bytes, int start, int newlines, int end) {
+        Tokenizer tokenizer;
+        if (start == 0) {
+            tokenizer = new Tokenizer(base, 0, 0, 0);
+        } else {
+            // Start at the end of the last non-empty line before the shard.
+            int lineEnd = start;
+            while (bytes[lineEnd - 1] == '\n')
+                lineEnd--;
+            int lineBegin = lineEnd;
+            while (lineBegin > 0 && bytes[lineBegin - 1] != '\n')
+                lineBegin--;
+            tokenizer = new Tokenizer(base, newlines - (start - lineEnd), lineBegin, lineEnd);
+        }
+
+        int length = Math.min(end, bytes.length) - start;
+        var buffer = new TokenBuffer(base.source(), bytes, Math.max(16, length / CHARS_PER_TOKEN));
+        while (true) {
+            int next = tokenizer.nextTokenStart();
+            if (next < 0 || next >= end)
+                return buffer;
+            var result = tokenizer.eatToken();
+            if (result.failure()) {
+                buffer.markIncomplete();
+                return buffer;
+            }
+            tokenizer.record(buffer, result.get());
+        }
+    }
+}
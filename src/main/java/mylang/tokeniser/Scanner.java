@@ -0,0 +1,147 @@
+package mylang.tokeniser;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+import static mylang.Utils.*;
+
+// Bulk scans over the tokenizer's byte copy of the source. Each scan returns the index of the first byte in
+// [from, to) that doesn't belong to the run, or `to` if they all do.
+//
+// By default the scans classify 8 bytes at a time with SWAR (SIMD within a register) tricks on `long` words.
+// Run with `-Dmylang.tokenizer.swar=false` to fall back to a plain byte-at-a-time loop. Both produce the same
+// results, which is what the tests check.
+//
+// The SWAR tricks rely on every byte having its high bit clear, except for bytes that can't be part of any run.
+// `narrow()` makes sure of that.
+class Scanner {
+    static final boolean SWAR = !"false".equals(System.getProperty("mylang.tokenizer.swar"));
+
+    // Anything outside of ASCII gets mapped to this. It is neither whitespace, a letter, a digit nor a newline.
+    static final byte NON_ASCII = (byte) 0x80;
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOWS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGHS = 0x8080808080808080L;
+
+    private Scanner() {}
+
+    static byte narrow(char ch) {
+        return ch < 0x80 ? (byte) ch : NON_ASCII;
+    }
+
+    // Narrows the chars in [from, to) into the same positions of `bytes`.
+    static void narrow(CharSequence source, byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++)
+            bytes[i] = narrow(source.charAt(i));
+    }
+
+    static int skipWhitespace(byte[] bytes, int from, int to) {
+        return SWAR ? swarSkipWhitespace(bytes, from, to) : scalarSkipWhitespace(bytes, from, to);
+    }
+
+    static int skipAlpha(byte[] bytes, int from, int to) {
+        return SWAR ? swarSkipAlpha(bytes, from, to) : scalarSkipAlpha(bytes, from, to);
+    }
+
+    static int skipDigits(byte[] bytes, int from, int to) {
+        return SWAR ? swarSkipDigits(bytes, from, to) : scalarSkipDigits(bytes, from, to);
+    }
+
+    static int findNewline(byte[] bytes, int from, int to) {
+        return SWAR ? swarFindNewline(bytes, from, to) : scalarFindNewline(bytes, from, to);
+    }
+
+    // Sets the high bit of every byte in `word` that equals the byte repeated in `pattern`.
+    private static long equalTo(long word, long pattern) {
+        long diff = word ^ pattern;
+        return ~(((diff & LOWS) + LOWS) | diff) & HIGHS;
+    }
+
+    // Sets the high bit of every byte in `word` that lies within [lo, hi]. Adding to the low 7 bits of a byte
+    // never carries into the next one as long as the sum stays below 0x100, which holds for 0 < lo <= hi < 0x80.
+    private static long between(long word, int lo, int hi) {
+        long low = word & LOWS;
+        long atLeastLo = low + (0x80 - lo) * ONES;
+        long aboveHi = low + (0x7F - hi) * ONES;
+        return atLeastLo & ~aboveHi & ~word & HIGHS;
+    }
+
+    // Index of the first byte whose high bit is set in `marks`.
+    private static int firstMarked(long marks) {
+        return Long.numberOfTrailingZeros(marks) >>> 3;
+    }
+
+    static int swarSkipWhitespace(byte[] bytes, int from, int to) {
+        int index = from;
+        for (; index + Long.BYTES <= to; index += Long.BYTES) {
+            long word = (long) LONGS.get(bytes, index);
+            long misses = ~(equalTo(word, ' ' * ONES) | equalTo(word, '\t' * ONES)) & HIGHS;
+            if (misses != 0)
+                return index + firstMarked(misses);
+        }
+        return scalarSkipWhitespace(bytes, index, to);
+    }
+
+    static int swarSkipAlpha(byte[] bytes, int from, int to) {
+        int index = from;
+        for (; index + Long.BYTES <= to; index += Long.BYTES) {
+            long word = (long) LONGS.get(bytes, index);
+            long misses = ~between(word, 'a', 'z') & HIGHS;
+            if (misses != 0)
+                return index + firstMarked(misses);
+        }
+        return scalarSkipAlpha(bytes, index, to);
+    }
+
+    static int swarSkipDigits(byte[] bytes, int from, int to) {
+        int index = from;
+        for (; index + Long.BYTES <= to; index += Long.BYTES) {
+            long word = (long) LONGS.get(bytes, index);
+            long misses = ~between(word, '0', '9') & HIGHS;
+            if (misses != 0)
+                return index + firstMarked(misses);
+        }
+        return scalarSkipDigits(bytes, index, to);
+    }
+
+    static int swarFindNewline(byte[] bytes, int from, int to) {
+        int index = from;
+        for (; index + Long.BYTES <= to; index += Long.BYTES) {
+            long hits = equalTo((long) LONGS.get(bytes, index), '\n' * ONES);
+            if (hits != 0)
+                return index + firstMarked(hits);
+        }
+        return scalarFindNewline(bytes, index, to);
+    }
+
+    static int scalarSkipWhitespace(byte[] bytes, int from, int to) {
+        int index = from;
+        while (index < to && isWhitespace((char) bytes[index]))
+            index++;
+        return index;
+    }
+
+    static int scalarSkipAlpha(byte[] bytes, int from, int to) {
+        int index = from;
+        while (index < to && isAlpha((char) bytes[index]))
+            index++;
+        return index;
+    }
+
+    static int scalarSkipDigits(byte[] bytes, int from, int to) {
+        int index = from;
+        while (index < to && isDigit((char) bytes[index]))
+            index++;
+        return index;
+    }
+
+    static int scalarFindNewline(byte[] bytes, int from, int to) {
+        int index = from;
+        while (index < to && bytes[index] != '\n')
+            index++;
+        return index;
+    }
+}
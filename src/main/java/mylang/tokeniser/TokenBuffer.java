@@ -0,0 +1,123 @@
+package mylang.tokeniser;
+
+import java.util.Arrays;
+
+// All of a source's tokens, lexed ahead of time, with their absolute positions. See `TokenFeed` for how they're
+// replayed.
+//
+// If lexing failed, the buffer ends at the last token before the failure and `complete()` is false.
+public class TokenBuffer extends TokenFeed {
+    // Names and numbers are rebuilt from the source on demand rather than kept around, unless they span lines.
+    // Holding on to millions of small objects would cost more in GC than lexing them does.
+    private Token[] tokens;
+    private Type[] types;
+    // Per token, in the order of the tokenizer state they stand for.
+    private int[] starts;
+    private int[] ends;
+    private int[] lineCursors;
+    private int[] lineBegins;
+    private int[] lineEnds;
+    private int[] lastTokenBegins;
+    private int size;
+    private boolean complete = true;
+
+    TokenBuffer(CharSequence source, byte[] bytes, int capacity) {
+        super(source, bytes);
+        tokens = new Token[capacity];
+        types = new Type[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        lineCursors = new int[capacity];
+        lineBegins = new int[capacity];
+        lineEnds = new int[capacity];
+        lastTokenBegins = new int[capacity];
+    }
+
+    @Override
+    void add(Token token, int start, int end, int lineCursor, int lineBegin, int lineEnd, int lastTokenBegin) {
+        if (size == tokens.length)
+            grow(Math.max(16, size * 2));
+        var type = token.type();
+        boolean rebuildable = (type == Type.NAME || type == Type.NUMBER) && token.value().length() == end - start;
+        tokens[size] = rebuildable ? null : token;
+        types[size] = type;
+        starts[size] = start;
+        ends[size] = end;
+        lineCursors[size] = lineCursor;
+        lineBegins[size] = lineBegin;
+        lineEnds[size] = lineEnd;
+        lastTokenBegins[size] = lastTokenBegin;
+        size++;
+    }
+
+    private void grow(int capacity) {
+        tokens = Arrays.copyOf(tokens, capacity);
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        lineCursors = Arrays.copyOf(lineCursors, capacity);
+        lineBegins = Arrays.copyOf(lineBegins, capacity);
+        lineEnds = Arrays.copyOf(lineEnds, capacity);
+        lastTokenBegins = Arrays.copyOf(lastTokenBegins, capacity);
+    }
+
+    // Appends all of `other`'s tokens.
+    void addAll(TokenBuffer other) {
+        int total = size + other.size;
+        if (total > tokens.length)
+            grow(Math.max(total, size * 2));
+        System.arraycopy(other.tokens, 0, tokens, size, other.size);
+        System.arraycopy(other.types, 0, types, size, other.size);
+        System.arraycopy(other.starts, 0, starts, size, other.size);
+        System.arraycopy(other.ends, 0, ends, size, other.size);
+        System.arraycopy(other.lineCursors, 0, lineCursors, size, other.size);
+        System.arraycopy(other.lineBegins, 0, lineBegins, size, other.size);
+        System.arraycopy(other.lineEnds, 0, lineEnds, size, other.size);
+        System.arraycopy(other.lastTokenBegins, 0, lastTokenBegins, size, other.size);
+        size = total;
+    }
+
+    void markIncomplete() {
+        complete = false;
+    }
+
+    @Override
+    boolean has(int index) {
+        return index < size;
+    }
+
+    @Override
+    void restore(int index, Tokenizer.State state) {
+        state.restore(lineCursors[index], lineBegins[index], lineEnds[index], ends[index], lastTokenBegins[index]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean complete() {
+        return complete;
+    }
+
+    @Override
+    public Token token(int index) {
+        var token = tokens[index];
+        if (token != null)
+            return token;
+        return new Token(types[index], source.subSequence(starts[index], ends[index]).toString());
+    }
+
+    public Type type(int index) {
+        return types[index];
+    }
+
+    @Override
+    public int start(int index) {
+        return starts[index];
+    }
+
+    // Offset right past the token's last char.
+    public int end(int index) {
+        return ends[index];
+    }
+}
@@ -0,0 +1,36 @@
+package mylang.tokeniser;
+
+// Tokens lexed ahead of the parser. Along with each token, a feed keeps the exact tokenizer state after eating it,
+// so that a tokenizer reset with `Tokenizer.reset(CharSequence, TokenFeed)` can replay the tokens and report
+// problems just as if it had lexed them itself.
+//
+// Replaying asks for tokens in order, going back at most to the one it asked for last (to eat what it peeked),
+// which lets feeds drop tokens once they've been passed.
+public abstract class TokenFeed {
+    final CharSequence source;
+    // The narrowed source, shared with replaying tokenizers so they don't have to narrow it again.
+    final byte[] bytes;
+
+    TokenFeed(CharSequence source, byte[] bytes) {
+        this.source = source;
+        this.bytes = bytes;
+    }
+
+    // Appends a token, see `Tokenizer.record()`.
+    abstract void add(Token token, int start, int end, int lineCursor, int lineBegin, int lineEnd,
+                      int lastTokenBegin);
+
+    // Whether there's a token at `index`. May wait for it to be lexed.
+    abstract boolean has(int index);
+
+    public abstract Token token(int index);
+
+    // Offset of the token's first char in the source.
+    public abstract int start(int index);
+
+    // Moves the tokenizer state to right after the given token.
+    abstract void restore(int index, Tokenizer.State state);
+
+    // Called once the replaying tokenizer won't ask for any more tokens.
+    void close() {}
+}
@@ -0,0 +1,203 @@
+package mylang.tokeniser;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Lexes on a thread of its own while the parser consumes the tokens, so that the two overlap on huge programs.
+// The lexer thread fills a fixed-size ring of packed tokens which the parser's tokenizer drains through
+// `Tokenizer.reset(CharSequence, TokenFeed)`; memory stays bounded by the ring however large the program is.
+//
+// There is exactly one producer and one consumer, so the ring needs no locks: each side owns one counter and only
+// reads the other's. Both sides publish their counter once per batch of tokens rather than per token, and wait
+// for each other by spinning briefly, then yielding, then parking for short spells.
+//
+// If the parse stops early or falls back to lexing by itself, the lexer thread is told to stop. Consumers that go
+// away without saying so, like a statement iterator that's dropped halfway, can't tell it. So the lexer also gives
+// up when the parser hasn't taken a token for `ABANDON_NANOS`. That's safe even if the parser was only slow: once
+// it runs out of tokens, it lexes the rest itself.
+public class TokenRing extends TokenFeed {
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    private static final int BATCH = 64;
+    private static final int SPINS = 100;
+    private static final int YIELDS = 200;
+    private static final long PARK_NANOS = 50_000;
+    static final long ABANDON_NANOS = 1_000_000_000L;
+
+    private final int mask;
+    private final int batch;
+    private final Type[] types;
+    // Only for tokens that can't be rebuilt from the source, like in `TokenBuffer`.
+    private final Token[] tokens;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] lineCursors;
+    private final int[] lineBegins;
+    private final int[] lineEnds;
+    private final int[] lastTokenBegins;
+
+    // Tokens the lexer has made visible to the parser.
+    private volatile long published;
+    // Tokens the parser is done with, so that the lexer can reuse their slots.
+    private volatile long consumed;
+    private volatile boolean done;
+    private volatile boolean closed;
+
+    // Producer side.
+    private long written;
+    private long consumedSeen;
+    // Consumer side.
+    private long publishedSeen;
+    private long consumedPublished;
+
+    private TokenRing(CharSequence source, byte[] bytes, int capacity) {
+        super(source, bytes);
+        mask = capacity - 1;
+        batch = Math.min(BATCH, capacity / 2);
+        types = new Type[capacity];
+        tokens = new Token[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        lineCursors = new int[capacity];
+        lineBegins = new int[capacity];
+        lineEnds = new int[capacity];
+        lastTokenBegins = new int[capacity];
+    }
+
+    public static TokenRing start(CharSequence source) {
+        return start(source, DEFAULT_CAPACITY);
+    }
+
+    // Starts lexing `source` on a new daemon thread. `capacity` is the number of tokens the ring holds, a power
+    // of two.
+    public static TokenRing start(CharSequence source, int capacity) {
+        if (source == null || source.length() == 0)
+            throw new RuntimeException("Invalid input!");
+        if (capacity < 2 || Integer.bitCount(capacity) != 1)
+            throw new RuntimeException("Ring capacity must be a power of two!");
+
+        // Narrowed up front, so that the parser's tokenizer can use the bytes as soon as it's reset.
+        var bytes = new byte[source.length()];
+        Scanner.narrow(source, bytes, 0, bytes.length);
+        var ring = new TokenRing(source, bytes, capacity);
+        var thread = new Thread(ring::produce, "mylang-lexer");
+        thread.setDaemon(true);
+        thread.start();
+        return ring;
+    }
+
+    private void produce() {
+        try {
+            var base = new Tokenizer.State();
+            base.reset(source, bytes);
+            var tokenizer = new Tokenizer(base, 0, 0, 0);
+            while (!closed && tokenizer.nextTokenStart() >= 0) {
+                // A failure is left to the parser's tokenizer to run into again.
+                var result = tokenizer.eatToken();
+                if (result.failure())
+                    break;
+                tokenizer.record(this, result.get());
+            }
+        } finally {
+            published = written;
+            done = true;
+        }
+    }
+
+    @Override
+    void add(Token token, int start, int end, int lineCursor, int lineBegin, int lineEnd, int lastTokenBegin) {
+        long parkedSince = 0;
+        for (int spins = 0; written - consumedSeen > mask; spins++) {
+            consumedSeen = consumed;
+            if (written - consumedSeen <= mask)
+                break;
+            // Let the parser see everything before waiting on it, or both would wait forever.
+            published = written;
+            if (closed)
+                return;
+            if (spins >= YIELDS) {
+                long now = System.nanoTime();
+                if (parkedSince == 0)
+                    parkedSince = now;
+                else if (now - parkedSince > ABANDON_NANOS) {
+                    closed = true;
+                    return;
+                }
+            }
+            backOff(spins);
+        }
+
+        int slot = (int) written & mask;
+        var type = token.type();
+        boolean rebuildable = (type == Type.NAME || type == Type.NUMBER) && token.value().length() == end - start;
+        types[slot] = type;
+        tokens[slot] = rebuildable ? null : token;
+        starts[slot] = start;
+        ends[slot] = end;
+        lineCursors[slot] = lineCursor;
+        lineBegins[slot] = lineBegin;
+        lineEnds[slot] = lineEnd;
+        lastTokenBegins[slot] = lastTokenBegin;
+        if (++written % batch == 0)
+            published = written;
+    }
+
+    @Override
+    boolean has(int index) {
+        // Everything before `index` has been passed for good.
+        if (index - consumedPublished >= batch) {
+            consumedPublished = index;
+            consumed = index;
+        }
+        if (index < publishedSeen)
+            return true;
+
+        for (int spins = 0; ; spins++) {
+            publishedSeen = published;
+            if (index < publishedSeen)
+                return true;
+            if (done) {
+                publishedSeen = published;
+                return index < publishedSeen;
+            }
+            backOff(spins);
+        }
+    }
+
+    private static void backOff(int spins) {
+        if (spins < SPINS)
+            Thread.onSpinWait();
+        else if (spins < YIELDS)
+            Thread.yield();
+        else LockSupport.parkNanos(PARK_NANOS);
+    }
+
+    @Override
+    public Token token(int index) {
+        int slot = index & mask;
+        var token = tokens[slot];
+        if (token != null)
+            return token;
+        return new Token(types[slot], source.subSequence(starts[slot], ends[slot]).toString());
+    }
+
+    @Override
+    public int start(int index) {
+        return starts[index & mask];
+    }
+
+    @Override
+    void restore(int index, Tokenizer.State state) {
+        int slot = index & mask;
+        state.restore(lineCursors[slot], lineBegins[slot], lineEnds[slot], ends[slot], lastTokenBegins[slot]);
+    }
+
+    @Override
+    void close() {
+        closed = true;
+    }
+
+    // Whether the lexer thread has finished, on its own or because it was told to stop.
+    public boolean done() {
+        return done;
+    }
+}
@@ -1,29 +1,156 @@
 package mylang.tokeniser;
 
 import mylang.ErrorManager;
+import mylang.Governor;
 import mylang.Signal;
+import mylang.metrics.CompilerMetrics;
+import mylang.metrics.Phase;
 
-import java.util.List;
+import java.util.Arrays;
 
 import static mylang.Utils.*;
 
 public class Tokenizer {
-    private static final List<String> KEYWORDS = List.of("if", "val");
+    private static final String PREMATURE_EOF = "Premature end-of-file!";
+    // Returned by the char-level helpers when there's nothing left to read.
+    private static final int EOF = -1;
+
+    // Tokens that always look the same are shared instead of being allocated over and over.
+    private static final Token IF = new Token(Type.KEYWORD, "if");
+    private static final Token VAL = new Token(Type.KEYWORD, "val");
+    private static final Token LPAREN = new Token(Type.LPAREN, "(");
+    private static final Token RPAREN = new Token(Type.RPAREN, ")");
+    private static final Token LBRACE = new Token(Type.LBRACE, "{");
+    private static final Token RBRACE = new Token(Type.RBRACE, "}");
+    private static final Token COMMA = new Token(Type.OPERATOR, ",");
+    private static final Token LT = new Token(Type.OPERATOR, "<");
+    private static final Token LE = new Token(Type.OPERATOR, "<=");
+    private static final Token GT = new Token(Type.OPERATOR, ">");
+    private static final Token GE = new Token(Type.OPERATOR, ">=");
+    private static final Token ASSIGN = new Token(Type.OPERATOR, "=");
+    private static final Token EQ = new Token(Type.OPERATOR, "==");
+    private static final Token NOT = new Token(Type.OPERATOR, "!");
+    private static final Token NE = new Token(Type.OPERATOR, "!=");
 
     private final State state;
     private final ErrorManager errorManager;
-
+    private final CompilerMetrics metrics;
+    // Only read the clock when somebody is listening.
+    private final boolean timed;
+    private final StringBuilder accumulator = new StringBuilder();
+    private int scannedChars;
+    // Cursor position at the last peek, so that we can tell when a peeked token gets lexed again.
+    private int peekedCursor = -1;
+    // Where the first char of the token being scanned sits. Unlike `State.lastTokenBegin()`, this is never on an
+    // earlier line than the token itself.
+    private int scannedTokenStart;
+    private int eatenTokenStart;
+    private int eatenTokenEnd;
+    // Line cursor after the last token lexed, eaten or peeked, whether or not lexing it succeeded.
+    private int lastTokenLine;
+    private Governor governor = new Governor();
+    // Tokens lexed ahead of time and the next one to hand out. Null while lexing as we go.
+    private TokenFeed replay;
+    private int replayIndex;
+
+    // Tracks the cursor as offsets into the source rather than keeping a copy of every line, so that resetting the
+    // tokenizer for another program doesn't allocate anything.
     public static class State {
-        private final List<String> sourceLines;
+        // How much of the source our own buffer is narrowed at a time.
+        private static final int NARROW_CHUNK = 16 * 1024;
+
+        private CharSequence source = "";
+        // ASCII copy of the source for the bulk scans in `Scanner`. Either our own, reused across resets, or one
+        // that came with a `TokenBuffer`. Our own is only narrowed as far as lines have been looked at, so a parse
+        // that stops early doesn't pay for the rest of the source.
+        private byte[] bytes = new byte[0];
+        private byte[] ownBytes = bytes;
+        // `bytes` holds the narrowed source up to here.
+        private int narrowed;
+        // Trailing newlines don't start new lines, just like `String.split()` drops trailing empty strings.
+        private int sourceEnd;
+        // Where the furthest line looked at so far ends, peeks included.
+        private int furthestLineEnd;
         private int lineCursor;
-        private int columnCursor;
+        private int lineBegin;
+        private int lineEnd;
+        private int cursor;
         private int lastTokenBeginIndex;
 
-        State(String source, int lineCursor, int columnCursor, int lastTokenBeginIndex) {
-            this.sourceLines = List.of(source.split("\n"));
+        private void reset(CharSequence source) {
+            reset(source, ownBytes, 0);
+        }
+
+        // Same as `reset(CharSequence)` with a narrowed copy of the source made beforehand.
+        void reset(CharSequence source, byte[] bytes) {
+            reset(source, bytes, source.length());
+        }
+
+        private void reset(CharSequence source, byte[] bytes, int narrowed) {
+            this.source = source;
+            this.bytes = bytes;
+            sourceEnd = source.length();
+            while (sourceEnd > 0 && source.charAt(sourceEnd - 1) == '\n')
+                sourceEnd--;
+            this.narrowed = Math.min(narrowed, sourceEnd);
+            furthestLineEnd = 0;
+            lineCursor = 0;
+            lineBegin = 0;
+            lineEnd = findLineEnd(0);
+            cursor = 0;
+            lastTokenBeginIndex = 0;
+        }
+
+        // Forgets the program, keeping our own byte buffer only if it's no bigger than `maxRetainedBytes`.
+        private void release(int maxRetainedBytes) {
+            if (ownBytes.length > maxRetainedBytes)
+                ownBytes = new byte[0];
+            reset("", ownBytes, 0);
+        }
+
+        // Picks up where `base` would be at the given position, sharing its source and bytes.
+        private void startAt(State base, int lineCursor, int lineBegin, int cursor) {
+            // The base has to be narrowed in full, since shards share its bytes.
+            source = base.source;
+            bytes = base.bytes;
+            narrowed = base.narrowed;
+            sourceEnd = base.sourceEnd;
+            restore(lineCursor, lineBegin, findLineEnd(lineBegin), cursor, cursor - lineBegin);
+        }
+
+        void restore(int lineCursor, int lineBegin, int lineEnd, int cursor, int lastTokenBeginIndex) {
             this.lineCursor = lineCursor;
-            this.columnCursor = columnCursor;
+            this.lineBegin = lineBegin;
+            this.lineEnd = lineEnd;
+            this.cursor = cursor;
             this.lastTokenBeginIndex = lastTokenBeginIndex;
+            furthestLineEnd = Math.max(furthestLineEnd, lineEnd);
+        }
+
+        private int findLineEnd(int from) {
+            int end = Scanner.findNewline(bytes, from, narrowed);
+            while (end == narrowed && narrowed < sourceEnd) {
+                narrowMore();
+                end = Scanner.findNewline(bytes, end, narrowed);
+            }
+            furthestLineEnd = Math.max(furthestLineEnd, end);
+            return end;
+        }
+
+        private void narrowMore() {
+            int to = Math.min(sourceEnd, narrowed + NARROW_CHUNK);
+            if (ownBytes.length < to)
+                ownBytes = Arrays.copyOf(ownBytes, Math.max(to, ownBytes.length * 2));
+            bytes = ownBytes;
+            Scanner.narrow(source, bytes, narrowed, to);
+            narrowed = to;
+        }
+
+        private void nextLine() {
+            lineCursor++;
+            lineBegin = lineEnd + 1;
+            lineEnd = findLineEnd(lineBegin);
+            cursor = lineBegin;
         }
 
         // 1-indexed.
@@ -33,7 +160,7 @@ public class Tokenizer {
 
         // 1-indexed.
         public int column() {
-            return columnCursor + 1;
+            return cursor - lineBegin + 1;
         }
 
         // 1-indexed.
@@ -41,42 +168,118 @@ public class Tokenizer {
             return lastTokenBeginIndex + 1;
         }
 
+        int sourceEnd() {
+            return sourceEnd;
+        }
+
+        // Offset of the current line's first char in the source.
+        public int lineBeginOffset() {
+            return lineBegin;
+        }
+
+        public CharSequence source() {
+            return source;
+        }
+
         public boolean atEndOfFile() {
-            boolean atLastLine = lineCursor == sourceLines.size() - 1;
-            return atLastLine && atEndOfLine();
+            // Only the last line ends where the source does.
+            return cursor == sourceEnd;
         }
 
         public String currentLine() {
-            return sourceLines.get(lineCursor);
+            return source.subSequence(lineBegin, lineEnd).toString();
         }
 
         private boolean atEndOfLine() {
-            return currentLine().length() == columnCursor;
+            return cursor == lineEnd;
         }
 
         private boolean isLineEmpty() {
-            return sourceLines.get(lineCursor).isEmpty();
+            return lineBegin == lineEnd;
         }
     }
 
-    private Tokenizer(String source) {
-        if (source == null || source.isEmpty())
-            throw new RuntimeException("Invalid input!");
-        state = new State(source, 0, 0, 0);
-        errorManager = new ErrorManager(state);
+    private Tokenizer(CompilerMetrics metrics) {
+        this.metrics = metrics;
+        timed = metrics != CompilerMetrics.NONE;
+        state = new State();
+        errorManager = new ErrorManager(state, metrics);
     }
 
-    public Signal<Void> advanceLine() {
-        if (state.atEndOfFile())
-            return Signal.fail("Premature end-of-file!");
+    // A tokenizer for one shard of `ParallelLexer`, starting where `base` would be at the given position.
+    Tokenizer(State base, int lineCursor, int lineBegin, int cursor) {
+        this(CompilerMetrics.NONE);
+        state.startAt(base, lineCursor, lineBegin, cursor);
+    }
 
-        state.lineCursor++;
-        state.columnCursor = 0;
-        if (state.isLineEmpty())
-            return advanceLine();
+    // Points the tokenizer at a new program. Buffers, the error manager and its problem storage are reused.
+    public Signal<Void> reset(CharSequence source) {
+        if (source == null || source.length() == 0)
+            return Signal.fail("Invalid input!");
+        state.reset(source);
+        clear();
         return Signal.of(null);
     }
 
+    // Points the tokenizer at a program that's being or has been lexed already, see `ParallelLexer` and
+    // `TokenRing`. The tokens are handed out from `tokens` until they run out or the parser skips ahead to recover
+    // from an error; from then on, the tokenizer lexes the rest itself. Either way, the results are the same as
+    // with `reset(CharSequence)`.
+    public Signal<Void> reset(CharSequence source, TokenFeed tokens) {
+        if (source == null || source.length() == 0)
+            return Signal.fail("Invalid input!");
+        if (tokens.source != source)
+            return Signal.fail("Tokens don't belong to this source!");
+        state.reset(source, tokens.bytes);
+        clear();
+        replay = tokens;
+        return Signal.of(null);
+    }
+
+    // Lets go of the program and any tokens lexed for it, so that an idle tokenizer doesn't keep them alive. The
+    // byte buffer is kept for the next program unless it's bigger than `maxRetainedBytes`. Call `reset()` before
+    // lexing again.
+    public void release(int maxRetainedBytes) {
+        state.release(maxRetainedBytes);
+        clear();
+    }
+
+    private void clear() {
+        stopReplay();
+        replayIndex = 0;
+        errorManager.reset();
+        scannedChars = 0;
+        peekedCursor = -1;
+        eatenTokenStart = 0;
+        eatenTokenEnd = 0;
+    }
+
+    State state() {
+        return state;
+    }
+
+    public Signal<Void> advanceLine() {
+        // Skipping ahead could land in the middle of a buffered token, so lex the rest as we go.
+        stopReplay();
+        do {
+            // There's no line past the last one, wherever on it the cursor is.
+            if (state.atEndOfFile() || state.lineEnd == state.sourceEnd)
+                return Signal.fail(PREMATURE_EOF);
+            state.nextLine();
+        } while (state.isLineEmpty());
+        return Signal.of(null);
+    }
+
+    // Moves past the line of the last token lexed, peeked or not, and any empty lines after it. A failed peek leaves
+    // the cursor on an earlier line than the token, so this is where to go to skip a broken statement.
+    public Signal<Void> skipTokenLine() {
+        while (state.lineCursor < lastTokenLine) {
+            if (advanceLine().failure())
+                return Signal.fail(PREMATURE_EOF);
+        }
+        return advanceLine();
+    }
+
     // Advances the line cursor only if we are at the end of the current line.
     public Signal<Void> advanceLineIfNecessary() {
         if (!state.atEndOfLine())
@@ -84,33 +287,60 @@ public class Tokenizer {
         return advanceLine();
     }
 
-    private Signal<Character> eatChar() {
-        var result = advanceLineIfNecessary();
-        if (result.failure())
-            return Signal.fail(result.message());
-        Character nextChar = state.currentLine().charAt(state.columnCursor++);
-        return Signal.of(nextChar);
+    private int eatChar() {
+        if (state.atEndOfLine() && advanceLine().failure())
+            return EOF;
+        scannedChars++;
+        return state.source.charAt(state.cursor++);
     }
 
-    private Signal<Character> peekChar() {
-        int oldLineCursor = state.lineCursor;
-        int oldColumnCursor = state.columnCursor;
-        var nextChar = eatChar();
-        state.lineCursor = oldLineCursor;
-        state.columnCursor = oldColumnCursor;
-        return nextChar;
+    // Same as `eatChar()`, minus moving the cursor.
+    private int peekChar() {
+        int offset = peekOffset();
+        return offset == EOF ? EOF : state.source.charAt(offset);
     }
 
-    private Signal<Void> eatWhitespaces() {
-        var result = peekChar();
-        if (result.failure())
-            return Signal.fail(result.message());
-        char nextChar = result.get();
-        if (isWhitespace(nextChar)) {
-            eatChar();
-            return eatWhitespaces();
+    // Where `eatChar()` would read from next.
+    private int peekOffset() {
+        if (!state.atEndOfLine())
+            return state.cursor;
+        if (state.atEndOfFile())
+            return EOF;
+
+        // Skip the empty lines, there's bound to be a non-empty one before the end of file.
+        int index = state.lineEnd + 1;
+        while (state.source.charAt(index) == '\n')
+            index++;
+        return index;
+    }
+
+    // Eats whitespace a line at a time. At the end of a line, we only move on to the next one if it starts with
+    // whitespace too, same as if we had kept peeking and eating one char at a time.
+    private void eatWhitespaces() {
+        while (true) {
+            int end = Scanner.skipWhitespace(state.bytes, state.cursor, state.lineEnd);
+            scannedChars += end - state.cursor;
+            state.cursor = end;
+            if (!state.atEndOfLine())
+                return;
+
+            int nextChar = peekChar();
+            if (nextChar == EOF || !isWhitespace((char) nextChar))
+                return;
+            advanceLine();
         }
-        return Signal.of(null);
+    }
+
+    // Eats the run of chars up to `end` on the current line into the accumulator.
+    private void accumulateUpTo(int end) {
+        accumulator.append(state.source, state.cursor, end);
+        scannedChars += end - state.cursor;
+        state.cursor = end;
+    }
+
+    // The governor is consulted before every token is lexed, peeks included.
+    public void setGovernor(Governor governor) {
+        this.governor = governor;
     }
 
     public ErrorManager errorManager() {
@@ -143,84 +373,142 @@ public class Tokenizer {
     }
 
     private void registerLastTokenBeginIndex() {
-        state.lastTokenBeginIndex = state.columnCursor;
+        state.lastTokenBeginIndex = state.cursor - state.lineBegin;
     }
 
+    // Numbers and names carry on into the next line if it starts with a char that fits. That's how eating them a char
+    // at a time with a peek in between always behaved, so the bulk scans below stick to it.
     private Signal<Token> eatNumberToken() {
-        char nextChar = peekChar().get();
-        var accumulator = new StringBuilder();
-        while (isDigit(nextChar)) {
-            eatChar();
-            accumulator.append(nextChar);
-
-            if (state.atEndOfFile())
-                return Signal.of(new Token(Type.NUMBER, accumulator.toString()));
-
-            var maybeNextChar = peekChar();
-            if (maybeNextChar.failure())
-                return Signal.fail(maybeNextChar.message());
-            nextChar = maybeNextChar.get();
+        accumulator.setLength(0);
+        while (true) {
+            accumulateUpTo(Scanner.skipDigits(state.bytes, state.cursor, state.lineEnd));
+            if (!state.atEndOfLine() || state.atEndOfFile())
+                break;
+
+            int nextChar = peekChar();
+            if (!isDigit((char) nextChar))
+                break;
+            advanceLine();
         }
         return Signal.of(new Token(Type.NUMBER, accumulator.toString()));
     }
 
     private Signal<Token> eatNameOrKeywordToken() {
-        char nextChar = peekChar().get();
-        var accumulator = new StringBuilder();
-        while (isAlpha(nextChar)) {
-            eatChar();
-            accumulator.append(nextChar);
-            var maybeNextChar = peekChar();
-            if (maybeNextChar.failure())
-                return Signal.fail(maybeNextChar.message());
-            nextChar = maybeNextChar.get();
+        accumulator.setLength(0);
+        while (true) {
+            accumulateUpTo(Scanner.skipAlpha(state.bytes, state.cursor, state.lineEnd));
+            if (!state.atEndOfLine())
+                break;
+
+            int nextChar = peekChar();
+            if (nextChar == EOF)
+                return Signal.fail(PREMATURE_EOF);
+            if (!isAlpha((char) nextChar))
+                break;
+            advanceLine();
         }
 
-        var value = accumulator.toString();
-        var type = KEYWORDS.contains(value) ? Type.KEYWORD : Type.NAME;
-        return Signal.of(new Token(type, value));
-
+        if (CharSequence.compare(accumulator, IF.value()) == 0)
+            return Signal.of(IF);
+        if (CharSequence.compare(accumulator, VAL.value()) == 0)
+            return Signal.of(VAL);
+        return Signal.of(new Token(Type.NAME, accumulator.toString()));
     }
 
     private Signal<Token> eatOperatorToken() {
-        char nextChar = eatChar().get();
-        var accumulator = new StringBuilder();
-        accumulator.append(nextChar);
+        char nextChar = (char) eatChar();
         switch (nextChar) {
-            case '(': return Signal.of(new Token(Type.LPAREN, "("));
-            case ')': return Signal.of(new Token(Type.RPAREN, ")"));
-            case '{': return Signal.of(new Token(Type.LBRACE, "{"));
-            case '}': return Signal.of(new Token(Type.RBRACE, "}"));
-            case ',': return Signal.of(new Token(Type.OPERATOR, ","));
+            case '(': return Signal.of(LPAREN);
+            case ')': return Signal.of(RPAREN);
+            case '{': return Signal.of(LBRACE);
+            case '}': return Signal.of(RBRACE);
+            case ',': return Signal.of(COMMA);
             case '>':
             case '<':
             case '=':
             case '!': {
-                var result = peekChar();
-                if (result.failure())
-                    return Signal.fail(result.message());
-                nextChar = result.get();
-                if (nextChar == '=')
-                    accumulator.append(eatChar().get());
-                return Signal.of(new Token(Type.OPERATOR, accumulator.toString()));
+                int followingChar = peekChar();
+                if (followingChar == EOF)
+                    return Signal.fail(PREMATURE_EOF);
+                boolean orEquals = followingChar == '=';
+                if (orEquals)
+                    eatChar();
+                return Signal.of(switch (nextChar) {
+                    case '>' -> orEquals ? GE : GT;
+                    case '<' -> orEquals ? LE : LT;
+                    case '=' -> orEquals ? EQ : ASSIGN;
+                    default -> orEquals ? NE : NOT;
+                });
             }
             default:
-                return Signal.fail(String.format("Unexpected symbol `%s`", accumulator));
+                return Signal.fail(String.format("Unexpected symbol `%s`", nextChar));
         }
 
     }
 
-    public Signal<Token> eatToken() {
-        // As soon as we have to eat the next token, re-enable error reporting.
-        errorManager.enableErrorReporting();
+    private Signal<Token> lexToken() {
+        // Once aborted, there's no point in reading any further.
+        if (errorManager.aborted())
+            return Signal.fail(errorManager.abortReason());
+        var reason = governor.check();
+        if (reason != null) {
+            errorManager.abort(reason);
+            return Signal.fail(reason);
+        }
+
+        if (replay != null) {
+            if (replay.has(replayIndex))
+                return replayToken();
+            stopReplay();
+        }
+
+        if (!timed)
+            return scanToken();
+
+        long start = System.nanoTime();
+        int oldScannedChars = scannedChars;
+        var result = scanToken();
+        metrics.charsScanned(scannedChars - oldScannedChars);
+        metrics.phaseCompleted(Phase.LEX, System.nanoTime() - start);
+        return result;
+    }
+
+    // Goes back to lexing as we go, if we were replaying. Lets the feed know it won't be asked for more tokens.
+    public void stopReplay() {
+        if (replay == null)
+            return;
+        replay.close();
+        replay = null;
+    }
+
+    private Signal<Token> replayToken() {
+        scannedTokenStart = replay.start(replayIndex);
+        replay.restore(replayIndex, state);
+        return Signal.of(replay.token(replayIndex++));
+    }
+
+    // Skips to where the next token starts and returns its offset, or `EOF` if there's none.
+    int nextTokenStart() {
+        eatWhitespaces();
+        registerLastTokenBeginIndex();
+        return peekOffset();
+    }
+
+    // Adds the token eaten last to `feed`, along with the state it left the tokenizer in.
+    void record(TokenFeed feed, Token token) {
+        feed.add(token, eatenTokenStart, state.cursor, state.lineCursor, state.lineBegin, state.lineEnd,
+                state.lastTokenBeginIndex);
+    }
+
+    private Signal<Token> scanToken() {
         eatWhitespaces();
         registerLastTokenBeginIndex();
 
-        var maybeNextChar = peekChar();
-        if (maybeNextChar.failure())
-            return Signal.fail(maybeNextChar.message());
+        scannedTokenStart = peekOffset();
+        if (scannedTokenStart == EOF)
+            return Signal.fail(PREMATURE_EOF);
 
-        char nextChar = maybeNextChar.get();
+        char nextChar = state.source.charAt(scannedTokenStart);
         if (isDigit(nextChar))
             return eatNumberToken();
         if (isAlpha(nextChar))
@@ -228,23 +516,91 @@ public class Tokenizer {
         return eatOperatorToken();
     }
 
+    public Signal<Token> eatToken() {
+        // As soon as we have to eat the next token, re-enable error reporting.
+        errorManager.enableErrorReporting();
+        if (state.cursor == peekedCursor)
+            metrics.tokenRelexed();
+
+        var result = lexToken();
+        lastTokenLine = state.lineCursor;
+        if (result.success()) {
+            eatenTokenStart = scannedTokenStart;
+            eatenTokenEnd = state.cursor;
+            governor.tokenEaten();
+            metrics.tokenProduced(result.get().type());
+        }
+        return result;
+    }
+
+    // Source offsets of the last token successfully eaten, end exclusive. Peeks don't count.
+    public int eatenTokenStart() {
+        return eatenTokenStart;
+    }
+
+    public int eatenTokenEnd() {
+        return eatenTokenEnd;
+    }
+
     public Signal<Token> peekToken() {
         int oldLineCursor = state.lineCursor;
-        int oldColumnCursor = state.columnCursor;
-        var nextToken = eatToken();
+        int oldLineBegin = state.lineBegin;
+        int oldLineEnd = state.lineEnd;
+        int oldCursor = state.cursor;
+        int oldReplayIndex = replayIndex;
+        metrics.tokenPeeked();
+        errorManager.enableErrorReporting();
+        var nextToken = lexToken();
+        lastTokenLine = state.lineCursor;
         state.lineCursor = oldLineCursor;
-        state.columnCursor = oldColumnCursor;
+        state.lineBegin = oldLineBegin;
+        state.lineEnd = oldLineEnd;
+        state.cursor = oldCursor;
+        replayIndex = oldReplayIndex;
+        peekedCursor = oldCursor;
         return nextToken;
     }
 
+    // Offset of the first char of the line the cursor is on.
+    public int lineBeginOffset() {
+        return state.lineBegin;
+    }
+
+    // 1-indexed.
+    public int lineNumber() {
+        return state.lineNumber();
+    }
+
+    // Where the furthest line looked at since the last reset ends. Nothing past it has been lexed or reported on.
+    public int lookedAtEnd() {
+        return state.furthestLineEnd;
+    }
+
+    // Whether there's nothing but whitespace left to lex. Unlike a peek, this neither lexes nor moves the cursor.
+    public boolean atEndOfInput() {
+        var source = state.source;
+        for (int i = state.cursor; i < state.sourceEnd; i++) {
+            char ch = source.charAt(i);
+            if (ch != '\n' && !isWhitespace(ch))
+                return false;
+        }
+        return true;
+    }
+
+    // A tokenizer with no program yet. `reset()` it before use.
+    public static Tokenizer getInstance(CompilerMetrics metrics) {
+        return new Tokenizer(metrics);
+    }
+
     public static Signal<Tokenizer> getInstance(String source) {
-        Signal<Tokenizer> signal;
-        try {
-            var tokenizer = new Tokenizer(source);
-            signal = Signal.of(tokenizer);
-        } catch (RuntimeException e) {
-            signal = Signal.fail(e.getMessage());
-        }
-        return signal;
+        return getInstance(source, CompilerMetrics.NONE);
+    }
+
+    public static Signal<Tokenizer> getInstance(String source, CompilerMetrics metrics) {
+        var tokenizer = new Tokenizer(metrics);
+        var result = tokenizer.reset(source);
+        if (result.failure())
+            return Signal.fail(result.message());
+        return Signal.of(tokenizer);
     }
 }
@@ -0,0 +1,48 @@
+package mylang;
+
+import mylang.metrics.CountingMetrics;
+import mylang.metrics.Phase;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompilerMetricsTest {
+    @Test
+    public void testCountsWellFormedProgram() {
+        String source = "if name == 10 {\n" +
+                "callfun(1, 2)\n" +
+                "val name = 20\n" +
+                "}";
+        var metrics = new CountingMetrics();
+        var result = new Parser(source, metrics).parse();
+        assertFalse(result.failed());
+
+        assertEquals(1, metrics.compilations());
+        // `if` + `callfun(...)` + `val`.
+        assertEquals(3, metrics.statements());
+        // if name == 10 { callfun ( 1 , 2 ) val name = 20 }
+        assertEquals(16, metrics.tokens());
+        assertTrue(metrics.peeks() > 0);
+        assertTrue(metrics.relexes() > 0);
+        assertTrue(metrics.charsScanned() >= source.replace("\n", "").length());
+        assertEquals(0, metrics.recoveries());
+        assertEquals(0, metrics.problems());
+        assertTrue(metrics.phaseNanos(Phase.PARSE) > 0);
+        assertTrue(metrics.phaseNanos(Phase.PARSE) >= metrics.phaseNanos(Phase.LEX));
+    }
+
+    @Test
+    public void testCountsRecoveriesAndProblems() {
+        String source = "if value == 10 {\n" +
+                "val == 10\n" +
+                "if blah = 10{}\n" +
+                "val = 20\n" +
+                "}";
+        var metrics = new CountingMetrics();
+        var result = new Parser(source, metrics).parse();
+        assertFalse(result.failed());
+        assertEquals(3, metrics.problems());
+        assertEquals(3, metrics.recoveries());
+        assertEquals(result.problems().size(), metrics.problems());
+    }
+}
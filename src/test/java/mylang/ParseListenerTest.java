@@ -0,0 +1,112 @@
+package mylang;
+
+import mylang.ast.ConditionExpression;
+import mylang.ast.Name;
+import mylang.ast.Number;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParseListenerTest {
+    private static class Recorder implements ParseListener {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void enterIf() {
+            events.add("enterIf");
+        }
+
+        @Override
+        public void condition(ConditionExpression condition) {
+            events.add("condition " + condition.operator().string());
+        }
+
+        @Override
+        public void exitIf(long span) {
+            events.add("exitIf");
+        }
+
+        @Override
+        public void discardIf() {
+            events.add("discardIf");
+        }
+
+        @Override
+        public void declaration(Name name, Number number, long span) {
+            events.add("declaration " + name.name() + " " + number.number());
+        }
+
+        @Override
+        public void call(Name name) {
+            events.add("call " + name.name());
+        }
+
+        @Override
+        public void argument(Object argument) {
+            events.add("argument");
+        }
+
+        @Override
+        public void exitCall(long span) {
+            events.add("exitCall");
+        }
+    }
+
+    @Test
+    public void testEventsForNestedProgram() {
+        String source = "if name == 10 {\n" +
+                "callfun(1, 2)\n" +
+                "if fame < 0 {\n" +
+                "val name = 20\n" +
+                "}\n" +
+                "}";
+        var recorder = new Recorder();
+        var result = new Parser(source).parse(recorder);
+        assertFalse(result.failed());
+        assertNull(result.astRoot());
+
+        var expected = List.of("enterIf", "condition ==", "call callfun", "argument", "argument", "exitCall",
+                "enterIf", "condition <", "declaration name 20", "exitIf", "exitIf");
+        assertEquals(expected, recorder.events);
+    }
+
+    @Test
+    public void testBrokenStatementsFireNoEvents() {
+        String source = "if value == 10 {\n" +
+                "val == 10\n" +
+                "call)\n" +
+                "val ok = 1\n" +
+                "}";
+        var recorder = new Recorder();
+        var result = new Parser(source).parse(recorder);
+        assertFalse(result.failed());
+        assertEquals(2, result.problems().size());
+        assertEquals(List.of("enterIf", "condition ==", "declaration ok 1", "exitIf"), recorder.events);
+    }
+
+    @Test
+    public void testFailedIfIsDiscarded() {
+        var recorder = new Recorder();
+        var result = new Parser("if name == 10 { call()").parse(recorder);
+        assertTrue(result.failed());
+        assertEquals(List.of("enterIf", "condition ==", "call call", "exitCall", "discardIf"), recorder.events);
+    }
+
+    @Test
+    public void testValidateMatchesParse() {
+        String source = "if value == 10 {\n" +
+                "val == 10\n" +
+                "if blah = 10{}\n" +
+                "val = 20\n" +
+                "}";
+        var parsed = new Parser(source).parse();
+        var validated = new Parser(source).validate();
+        assertEquals(parsed.failed(), validated.failed());
+        assertEquals(parsed.problems().size(), validated.problems().size());
+        for (int i = 0; i < parsed.problems().size(); i++)
+            assertEquals(parsed.problems().get(i).prettyError(), validated.problems().get(i).prettyError());
+    }
+}
@@ -3,8 +3,24 @@ package mylang;
 import mylang.ast.DeclarationStatement;
 import mylang.ast.FunctionCallStatement;
 import mylang.ast.IfStatement;
+import mylang.ast.Name;
+import mylang.ast.Number;
+import mylang.ast.Span;
+import mylang.metrics.CountingMetrics;
+import mylang.tokeniser.ParallelLexer;
 import org.junit.jupiter.api.Test;
 
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ParserTest {
@@ -361,4 +377,490 @@ public class ParserTest {
         assertEquals(5, p2.line());
         assertEquals(2, p2.column());
     }
+
+    @Test
+    public void testDeeplyNestedIfStatements() {
+        int depth = 50_000;
+        var builder = new StringBuilder();
+        builder.append("if a == 1 {\n".repeat(depth));
+        builder.append("call(1)\n");
+        builder.append("}\n".repeat(depth));
+
+        var parser = new Parser(builder.toString());
+        var result = parser.parse();
+        assertFalse(result.failed());
+        assertFalse(result.hasProblems());
+
+        var stmt = result.astRoot();
+        for (int i = 0; i < depth; i++)
+            stmt = ((IfStatement) stmt).statements().get(0);
+        assertTrue(stmt instanceof FunctionCallStatement);
+    }
+
+    @Test
+    public void testNestingDepthLimit() {
+        String source = "if a == 1 {\n" +
+                "if b == 2 {\n" +
+                "if c == 3 {}\n" +
+                "}\n" +
+                "}";
+        var parser = new Parser(source);
+        parser.setMaxNestingDepth(2);
+        var result = parser.parse();
+        assertTrue(result.failed());
+        assertEquals(1, result.problems().size());
+
+        var problem = result.problems().get(0);
+        assertTrue(problem.description().startsWith("Nesting depth exceeds the limit of 2"));
+        assertEquals(3, problem.line());
+    }
+
+    @Test
+    public void testParserReset() {
+        var parser = new Parser("if name = 10 {}");
+        var first = parser.parse();
+        assertTrue(first.failed());
+
+        parser.reset("val name = 10");
+        var second = parser.parse();
+        assertFalse(second.failed());
+        assertFalse(second.hasProblems());
+        assertTrue(second.astRoot() instanceof DeclarationStatement);
+
+        // Problems of earlier parses survive the reset.
+        assertEquals(1, first.problems().size());
+        assertTrue(first.problems().get(0).description().startsWith("Unexpected operator `=`"));
+        assertEquals(9, first.problems().get(0).column());
+    }
+
+    @Test
+    public void testResetWithReusedBuffer() {
+        var buffer = new StringBuilder("if value == 10 {\nval == 10\n}");
+        var parser = new Parser();
+        parser.reset(buffer);
+        var first = parser.parse();
+
+        buffer.setLength(0);
+        buffer.append("call(1)");
+        parser.reset(buffer);
+        assertFalse(parser.parse().hasProblems());
+
+        assertEquals("Expected token of type `NAME` @(Line=2, Column=5)\n\tval == 10\n\t    ^~~~ here\n",
+                first.problems().get(0).prettyError());
+        assertEquals(3, first.sourceIndex().lineCount());
+    }
+
+    @Test
+    public void testPooledParserMatchesFreshParser() {
+        var sources = List.of("if name == 10 {}", "fun(10", "val value == 20",
+                "if value == 10 {\nval == 10\nif blah = 10{}\nval = 20\n}", "function(30, 40)");
+        for (var source : sources) {
+            var fresh = new Parser(source).parse();
+            var pooled = ParserPool.parse(source);
+            assertEquals(fresh.failed(), pooled.failed());
+            assertEquals(fresh.problems().size(), pooled.problems().size());
+            for (int i = 0; i < fresh.problems().size(); i++)
+                assertEquals(fresh.problems().get(i).prettyError(), pooled.problems().get(i).prettyError());
+        }
+    }
+
+    @Test
+    public void testPooledParserLetsGoOfTheSource() throws InterruptedException {
+        var source = new StringBuilder(callsInIf(10_000));
+        var reference = new WeakReference<>(source);
+        assertFalse(ParserPool.validate(source).failed());
+        source = null;
+
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+        assertFalse(ParserPool.parse("call(1)").failed());
+    }
+
+    @Test
+    public void testNodeSpans() {
+        var source = "if  value < 10 {\n  call(x, 20)\n    val y = 30\n}";
+        var result = new Parser(source).parse();
+        assertFalse(result.failed());
+        assertFalse(result.hasProblems());
+
+        var ifStatement = (IfStatement) result.astRoot();
+        assertEquals(source, text(source, ifStatement.span()));
+        var condition = ifStatement.getConditionExpression();
+        assertEquals("value < 10", text(source, condition.span()));
+        assertEquals("<", text(source, condition.operator().span()));
+
+        var call = (FunctionCallStatement) ifStatement.statements().get(0);
+        assertEquals("call(x, 20)", text(source, call.span()));
+        assertEquals("x", text(source, ((Name) call.arguments().get(0)).span()));
+        assertEquals("20", text(source, ((Number) call.arguments().get(1)).span()));
+
+        var declaration = (DeclarationStatement) ifStatement.statements().get(1);
+        assertEquals("val y = 30", text(source, declaration.span()));
+
+        var index = result.sourceIndex();
+        assertEquals(4, index.lineCount());
+        assertEquals(1, index.line(condition.start()));
+        assertEquals(5, index.column(condition.start()));
+        assertEquals(2, index.line(call.start()));
+        assertEquals(3, index.column(call.start()));
+        assertEquals(3, index.line(declaration.start()));
+        assertEquals(5, index.column(declaration.start()));
+        assertEquals("    val y = 30", index.lineText(3));
+        assertEquals(4, index.line(ifStatement.end() - 1));
+    }
+
+    private static String text(String source, long span) {
+        return source.substring(Span.start(span), Span.end(span));
+    }
+
+    @Test
+    public void testNumberOutOfRange() {
+        var result = new Parser("val big = 99999999999").parse();
+        assertTrue(result.failed());
+        var problem = result.problems().get(0);
+        assertTrue(problem.description().startsWith("Number `99999999999` is out of range"));
+        assertEquals(1, problem.line());
+    }
+
+    @Test
+    public void testProblemOffset() {
+        var source = "if value == 10 {\nval == 10\n}";
+        var result = new Parser(source).parse();
+        var problem = result.problems().get(0);
+        assertEquals(2, problem.line());
+        assertEquals(5, problem.column());
+        var index = result.sourceIndex();
+        assertEquals(problem.line(), index.line(problem.offset()));
+        assertEquals(problem.column(), index.column(problem.offset()));
+    }
+
+    @Test
+    public void testHashConsing() {
+        var interner = new AstInterner();
+        var parser = new Parser();
+        parser.setInterner(interner);
+
+        var source = "if value < 10 {\ncall(x, 20)\nval y = 30\ncall(x, 20)\n}";
+        parser.reset(source);
+        var first = (IfStatement) parser.parse().astRoot();
+        parser.reset(source);
+        var second = (IfStatement) parser.parse().astRoot();
+
+        assertSame(first.getConditionExpression(), second.getConditionExpression());
+        assertSame(first.statements().get(0), first.statements().get(2));
+        assertSame(first.statements().get(1), second.statements().get(1));
+        var call = (FunctionCallStatement) first.statements().get(0);
+        assertSame(call.arguments().get(0), ((FunctionCallStatement) second.statements().get(0)).arguments().get(0));
+        assertEquals(Span.NONE, call.span());
+        // The if statements themselves aren't shared and keep their spans.
+        assertNotSame(first, second);
+        assertEquals(source.length(), first.end());
+        assertTrue(interner.hits() > 0);
+    }
+
+    @Test
+    public void testInternerStaysBoundedAndKeepsHotNodes() {
+        var interner = new AstInterner(8);
+        var hot = interner.name(new Name("hot"));
+        for (int i = 0; i < 1000; i++) {
+            interner.name(new Name("cold" + i));
+            assertSame(hot, interner.name(new Name("hot")));
+        }
+        assertTrue(interner.size() <= 8);
+        assertEquals(1000, interner.hits());
+        assertEquals(1001, interner.misses());
+    }
+
+    @Test
+    public void testInternerSharedAcrossThreads() throws Exception {
+        var interner = new AstInterner();
+        var pool = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<CompletableFuture<FunctionCallStatement>>();
+            for (int i = 0; i < 16; i++)
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    var parser = new Parser("call(x, 20)");
+                    parser.setInterner(interner);
+                    return (FunctionCallStatement) parser.parse().astRoot();
+                }, pool));
+            var first = futures.get(0).get();
+            for (var future : futures)
+                assertSame(first, future.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String callsInIf(int calls) {
+        return "if a == 1 {\n" + "call(1, 2)\n".repeat(calls) + "}";
+    }
+
+    private static void assertAborted(CompilationResult result, String reason) {
+        assertTrue(result.failed());
+        var problems = result.problems();
+        assertTrue(problems.get(problems.size() - 1).description().startsWith(reason));
+    }
+
+    @Test
+    public void testTokenLimit() {
+        var parser = new Parser(callsInIf(100));
+        parser.setLimits(ParseLimits.DEFAULT.withMaxTokens(50));
+        var result = parser.parse();
+        assertAborted(result, "Token count exceeds the limit of 50");
+        assertEquals(1, result.problems().size());
+    }
+
+    @Test
+    public void testTimeout() {
+        var parser = new Parser(callsInIf(1000));
+        parser.setLimits(ParseLimits.DEFAULT.withTimeout(Duration.ZERO));
+        assertAborted(parser.parse(), "Compilation timed out after 0 ms");
+    }
+
+    @Test
+    public void testArgumentLimit() {
+        // Commas only separate pairs of arguments, long argument lists are separated by spaces.
+        var parser = new Parser("call(1, 2 3, 4 5)");
+        parser.setLimits(ParseLimits.DEFAULT.withMaxArguments(4));
+        assertAborted(parser.parse(), "Argument count exceeds the limit of 4");
+
+        parser.reset("call(1, 2 3, 4)");
+        assertFalse(parser.parse().hasProblems());
+    }
+
+    @Test
+    public void testProblemLimit() {
+        var parser = new Parser("if a == 1 {\n" + "val == 10\n".repeat(10) + "}");
+        parser.setLimits(ParseLimits.DEFAULT.withMaxProblems(3));
+        var result = parser.parse();
+        assertAborted(result, "Problem count exceeds the limit of 3");
+        assertEquals(4, result.problems().size());
+    }
+
+    @Test
+    public void testParseAsync() throws Exception {
+        var result = new Parser(callsInIf(10)).parseAsync().get();
+        assertFalse(result.failed());
+        assertEquals(10, ((IfStatement) result.astRoot()).statements().size());
+    }
+
+    @Test
+    public void testCancelParseAsync() {
+        var tasks = new ArrayList<Runnable>();
+        var future = new AtomicReference<CompletableFuture<CompilationResult>>();
+        var calls = new AtomicInteger();
+        var listener = new ParseListener() {
+            @Override
+            public void call(mylang.ast.Name name) {
+                calls.incrementAndGet();
+                future.get().cancel(true);
+            }
+        };
+
+        var parser = new Parser(callsInIf(1000));
+        future.set(parser.parseAsync(listener, tasks::add));
+        tasks.get(0).run();
+        assertTrue(future.get().isCancelled());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testResetAfterCancelWaitsForTheWorker() throws Exception {
+        var cancelled = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var calls = new AtomicInteger();
+        var listener = new ParseListener() {
+            @Override
+            public void call(mylang.ast.Name name) {
+                if (calls.incrementAndGet() == 1) {
+                    // Keep the worker inside the parse after its future was cancelled.
+                    cancelled.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+        };
+
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var parser = new Parser(callsInIf(1000));
+            var future = parser.parseAsync(listener, executor);
+            cancelled.await();
+            assertTrue(future.cancel(true));
+            assertFalse(parser.idle().isDone());
+            assertThrows(RuntimeException.class, () -> parser.reset("call(1)"));
+
+            release.countDown();
+            parser.idle().get();
+            assertEquals(1, calls.get());
+            parser.reset("call(1)");
+            assertFalse(parser.parse().failed());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParseAsyncClaimsTheSource() {
+        var tasks = new ArrayList<Runnable>();
+        var parser = new Parser(callsInIf(10));
+        var future = parser.parseAsync(tasks::add);
+        assertThrows(RuntimeException.class, parser::parse);
+
+        tasks.get(0).run();
+        assertFalse(future.join().failed());
+        assertTrue(parser.idle().isDone());
+    }
+
+    private static String describe(CompilationResult result) {
+        var problems = result.problems().stream().map(p -> p.line() + ":" + p.column() + " " + p.description())
+                .toList();
+        var root = result.astRoot();
+        var kind = root == null ? "failed" : root.getClass().getSimpleName();
+        return problems.isEmpty() ? kind : kind + " " + problems;
+    }
+
+    @Test
+    public void testParseStatements() {
+        var source = "val a = 1\n" +
+                "if a < 2 {\n" +
+                "    f(a)\n" +
+                "}\n" +
+                "val b = 2 log(b)\n" +
+                "if a { \n" +
+                "g()\n" +
+                "}\n" +
+                "val c = 3\n\n";
+        var results = new ArrayList<String>();
+        new Parser(source).parseStatements().forEachRemaining(result -> results.add(describe(result)));
+        assertEquals(List.of(
+                "DeclarationStatement",
+                "IfStatement",
+                "DeclarationStatement",
+                "FunctionCallStatement",
+                "failed [6:6 Expected token of type `OPERATOR`]",
+                "FunctionCallStatement",
+                "failed [7:4 Unexpected token `}`]",
+                "DeclarationStatement"), results);
+    }
+
+    @Test
+    public void testParseStatementsSkipsOnlyTheBrokenLine() {
+        // The bad token ends its line, so the next line is a statement of its own.
+        assertEquals(List.of("failed [1:9 Expected token of type `NUMBER`]", "FunctionCallStatement",
+                        "FunctionCallStatement"),
+                new Parser("val x = =\ncall()\ncall(2)").streamStatements().map(ParserTest::describe).toList());
+        assertEquals(List.of("failed [1:6 Expected token of type `OPERATOR`]", "FunctionCallStatement",
+                        "FunctionCallStatement"),
+                new Parser("if a {\ng()\nh()").streamStatements().map(ParserTest::describe).toList());
+    }
+
+    @Test
+    public void testParseStatementsLazily() {
+        var metrics = new CountingMetrics();
+        var parser = new Parser(callsInIf(10) + "\n" + callsInIf(10) + "\nval x = \"", metrics);
+        var first = parser.streamStatements().findFirst().orElseThrow();
+        assertEquals(10, ((IfStatement) first.astRoot()).statements().size());
+        assertEquals(1, metrics.compilations());
+
+        // The broken last statement ends the iteration.
+        parser.reset(callsInIf(1) + "\nval x = 1 )");
+        assertEquals(List.of("IfStatement", "DeclarationStatement", "failed [4:11 Unexpected token `)`]"),
+                parser.streamStatements().map(ParserTest::describe).toList());
+
+        var iterator = new Parser("val x = 1").parseStatements();
+        assertTrue(iterator.hasNext());
+        iterator.next();
+        assertFalse(iterator.hasNext());
+        assertThrows(NoSuchElementException.class, iterator::next);
+
+        parser.reset("val x = 1\nval y = 2");
+        iterator = parser.parseStatements();
+        iterator.next();
+        parser.reset("val x = 1");
+        assertThrows(RuntimeException.class, iterator::hasNext);
+    }
+
+    // Remembers how far into it anybody has looked.
+    private static class WatchedSource implements CharSequence {
+        private final String text;
+        private int furthest;
+
+        WatchedSource(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            // The tokenizer looks for trailing newlines when it's reset.
+            if (index < text.length() - 2)
+                furthest = Math.max(furthest, index);
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            furthest = Math.max(furthest, end - 1);
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            furthest = text.length() - 1;
+            return text;
+        }
+    }
+
+    @Test
+    public void testStoppingEarlyOnlyLooksAtTheStart() {
+        var source = new WatchedSource("val a = 1\nval b = (a\n" + "call(1, 2)\n".repeat(100_000));
+        var parser = new Parser();
+        parser.reset(source);
+        var iterator = parser.parseStatements();
+        iterator.next();
+        var second = iterator.next();
+        assertTrue(source.furthest < 64 * 1024, () -> "Looked at " + source.furthest);
+
+        // The result only copied the lines of its statement, plus the one the parser peeked into, and still reports
+        // against the whole program.
+        var index = second.sourceIndex();
+        assertEquals(3, index.lineCount());
+        assertEquals("val b = (a", index.lineText(2));
+        assertEquals("Expected token of type `NUMBER` @(Line=2, Column=9)\n\tval b = (a\n\t        ^~~~ here\n",
+                second.problems().get(0).prettyError());
+        assertEquals("call(1, 2)", index.lineText(3));
+        assertThrows(RuntimeException.class, () -> index.lineText(4));
+    }
+
+    @Test
+    public void testParseStatementsFromTokenFeed() {
+        var source = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            source.append("val a = ").append(i).append("\nif a < ").append(i).append(" { f(a) }\n");
+        var parser = new Parser();
+        parser.reset(source, ParallelLexer.lex(source));
+        assertEquals(2000, parser.streamStatements().filter(result -> !result.failed()).count());
+    }
+
+    @Test
+    public void testStatementLimits() {
+        var parser = new Parser();
+        parser.setLimits(ParseLimits.DEFAULT.withMaxTokens(10));
+        parser.reset("val a = 1\nval b = 2\nval c = 3\nf(a b c d e f g h i j)");
+        // Four tokens each, so only the call hits the limit, and nothing follows an abort.
+        assertEquals(List.of("DeclarationStatement", "DeclarationStatement", "DeclarationStatement",
+                        "failed [4:17 Token count exceeds the limit of 10]"),
+                parser.streamStatements().map(ParserTest::describe).toList());
+    }
 }
@@ -0,0 +1,167 @@
+package mylang;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProgramRegistryTest {
+    @Test
+    public void testPublish() {
+        var registry = new ProgramRegistry();
+        assertFalse(registry.publish("rule", "if a == 1 {}").failed());
+        var first = registry.snapshot().get("rule");
+        assertEquals("rule", first.name());
+
+        // A broken version leaves the working one in place.
+        assertTrue(registry.publish("rule", "if a == {}").failed());
+        assertSame(first, registry.snapshot().get("rule"));
+
+        registry.publish("rule", "if a == 2 {}");
+        var second = registry.snapshot().get("rule");
+        assertTrue(second.version() > first.version());
+
+        assertTrue(registry.remove("rule"));
+        assertFalse(registry.remove("rule"));
+        assertNull(registry.snapshot().get("rule"));
+
+        var stats = registry.stats();
+        assertEquals(0, stats.programs());
+        assertEquals(3, stats.swaps());
+        assertEquals(1, stats.rejected());
+        assertEquals(2, stats.retired());
+        assertTrue(stats.maxSwapNanos() > 0);
+    }
+
+    @Test
+    public void testRetiresOnceReadersDrain() throws Exception {
+        var retired = new ArrayList<ProgramRegistry.Program>();
+        var registry = new ProgramRegistry(retired::add);
+        registry.publish("rule", "if a == 1 {}");
+
+        var pinned = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var seen = new AtomicReference<ProgramRegistry.Program>();
+        var failure = new AtomicReference<Throwable>();
+        var thread = new Thread(() -> {
+            try (var reader = registry.read()) {
+                seen.set(reader.get("rule"));
+                pinned.countDown();
+                release.await();
+                // Still the version this reader started with.
+                assertSame(seen.get(), reader.get("rule"));
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        thread.start();
+        pinned.await();
+
+        registry.publish("rule", "if a == 2 {}");
+        assertTrue(retired.isEmpty());
+        assertEquals(1, registry.stats().pending());
+
+        release.countDown();
+        thread.join();
+        assertNull(failure.get());
+        assertEquals(1, registry.reclaim());
+        assertEquals(List.of(seen.get()), retired);
+    }
+
+    @Test
+    public void testNestedReads() {
+        var registry = new ProgramRegistry();
+        registry.publish("rule", "if a == 1 {}");
+        try (var outer = registry.read()) {
+            var program = outer.get("rule");
+            registry.publish("rule", "if a == 2 {}");
+            try (var inner = registry.read()) {
+                assertSame(program, inner.get("rule"));
+            }
+            assertSame(program, outer.get("rule"));
+        }
+        assertEquals(1, registry.reclaim());
+        var reader = registry.read();
+        reader.close();
+        assertThrows(RuntimeException.class, reader::close);
+    }
+
+    @Test
+    public void testConcurrentSwaps() throws Exception {
+        var retired = ConcurrentHashMap.<ProgramRegistry.Program>newKeySet();
+        var registry = new ProgramRegistry(retired::add);
+        registry.publish("rule", "if a == 0 {}");
+
+        var stop = new AtomicBoolean();
+        var failure = new AtomicReference<Throwable>();
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            var thread = new Thread(() -> {
+                try {
+                    while (!stop.get()) {
+                        try (var reader = registry.read()) {
+                            var program = reader.get("rule");
+                            assertNotNull(program.root());
+                            Thread.yield();
+                            assertFalse(retired.contains(program), "Retired while being read");
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (int i = 1; i <= 2000; i++)
+            registry.publish("rule", "if a == " + i + " {}");
+        stop.set(true);
+        for (var thread : threads)
+            thread.join();
+        assertNull(failure.get());
+
+        registry.reclaim();
+        var stats = registry.stats();
+        assertEquals(2000, stats.retired());
+        assertEquals(0, stats.pending());
+        assertFalse(retired.contains(registry.snapshot().get("rule")));
+    }
+
+    @Test
+    public void testDropsReadersOfDeadThreads() throws Exception {
+        var registry = new ProgramRegistry();
+        registry.publish("rule", "if a == 1 {}");
+        for (int i = 0; i < 100; i++) {
+            // Left open on purpose: the pin must not outlive the thread.
+            var thread = new Thread(registry::read);
+            thread.start();
+            thread.join();
+        }
+        assertTrue(registry.readers() <= 1);
+
+        registry.publish("rule", "if a == 2 {}");
+        assertEquals(0, registry.readers());
+        assertEquals(0, registry.stats().pending());
+    }
+
+    @Test
+    public void testReadersDoNotKeepTheRegistryAlive() throws Exception {
+        var registry = new ProgramRegistry();
+        registry.read().close();
+        var ref = new WeakReference<>(registry);
+        registry = null;
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+    }
+}
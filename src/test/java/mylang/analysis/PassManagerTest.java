@@ -0,0 +1,126 @@
+package mylang.analysis;
+
+import mylang.AstInterner;
+import mylang.Parser;
+import mylang.Problem;
+import mylang.ast.ConditionExpression;
+import mylang.ast.FunctionCallStatement;
+import mylang.ast.Name;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PassManagerTest {
+    private static List<Problem> analyse(String source, Analysis... analyses) {
+        var result = new Parser(source).parse();
+        assertFalse(result.hasProblems());
+        return new PassManager(List.of(analyses)).run(result);
+    }
+
+    private static List<String> describe(List<Problem> problems) {
+        return problems.stream()
+                .map(p -> (p.hasPosition() ? p.line() + ":" + p.column() + " " : "") + p.description()).toList();
+    }
+
+    @Test
+    public void testAllAnalysesInOneWalk() {
+        var source = "if age > 18 {\n" +
+                "    val limit = 10\n" +
+                "    val unused = 1\n" +
+                "    if limit < 20 {\n" +
+                "        log(age, limit)\n" +
+                "        log(age, limit)\n" +
+                "        log(missing)\n" +
+                "    }\n" +
+                "    if age == age {}\n" +
+                "}";
+        var problems = analyse(source, new UnusedDeclarations(), new ConstantConditions(), new DuplicateCalls(),
+                new UndefinedNames(Set.of("age")));
+        assertEquals(List.of(
+                "4:8 Condition is always true",
+                "6:9 Duplicate call to `log`",
+                "7:13 Undefined name `missing`",
+                "9:8 Condition is always true",
+                "3:5 Value `unused` is never used"), describe(problems));
+    }
+
+    @Test
+    public void testScopesAndRedeclarations() {
+        var source = "if a == 1 {\n" +
+                "    val x = 1\n" +
+                "    val x = 2\n" +
+                "    if b == 2 {\n" +
+                "        val y = 3\n" +
+                "    }\n" +
+                "    call(x, y)\n" +
+                "}";
+        var problems = analyse(source, new UnusedDeclarations(), new UndefinedNames(Set.of("a", "b")));
+        assertEquals(List.of(
+                "2:5 Value `x` is never used",
+                "5:9 Value `y` is never used",
+                "7:13 Undefined name `y`"), describe(problems));
+    }
+
+    @Test
+    public void testOnlyInterestedAnalysesAreCalled() {
+        var names = new int[1];
+        var counter = new Analysis() {
+            @Override
+            public Set<NodeKind> kinds() {
+                return EnumSet.of(NodeKind.NAME);
+            }
+
+            @Override
+            public void name(Name node, AnalysisContext context) {
+                names[0]++;
+            }
+
+            @Override
+            public void condition(ConditionExpression node, AnalysisContext context) {
+                fail("Not interested in conditions");
+            }
+        };
+        analyse("if a == b {\ncall(c, 1)\nif d < 2 {}\n}", counter);
+        assertEquals(4, names[0]);
+    }
+
+    @Test
+    public void testStateDoesNotOutliveAWalk() {
+        var duplicates = new DuplicateCalls();
+        var failing = new Analysis() {
+            @Override
+            public Set<NodeKind> kinds() {
+                return EnumSet.of(NodeKind.CALL);
+            }
+
+            @Override
+            public void call(FunctionCallStatement node, AnalysisContext context) {
+                throw new RuntimeException("Walk aborted");
+            }
+        };
+        assertThrows(RuntimeException.class, () -> analyse("if a == 1 {\nf(1)\n}", duplicates, failing));
+        assertEquals(List.of(), analyse("f(1)", duplicates));
+    }
+
+    @Test
+    public void testSpanlessNodesAreReportedAtTheEnclosingIf() {
+        var interner = new AstInterner();
+        var parser = new Parser("if a == 1 {\n    call(missing)\n}");
+        parser.setInterner(interner);
+        var result = parser.parse();
+        var problems = new PassManager(List.of(new UndefinedNames(Set.of("a")))).run(result);
+        assertEquals(List.of("1:1 Undefined name `missing`"), describe(problems));
+
+        parser = new Parser("call(missing)");
+        parser.setInterner(interner);
+        problems = new PassManager(List.of(new UndefinedNames(Set.of()))).run(parser.parse());
+        assertEquals(List.of("Undefined name `missing`"), describe(problems));
+        assertFalse(problems.get(0).hasPosition());
+        assertEquals(-1, problems.get(0).offset());
+        assertEquals("Undefined name `missing`\n", problems.get(0).prettyError());
+    }
+}
@@ -0,0 +1,97 @@
+package mylang.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class CheckCommandTest {
+    @TempDir
+    Path root;
+
+    private void write(String relative, String source) throws IOException {
+        var path = root.resolve(relative);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, source);
+    }
+
+    @Test
+    public void testReportsInStableOrder() throws IOException {
+        for (int i = 0; i < 300; i++) {
+            var dir = String.format("d%02d", i % 7);
+            var source = i % 3 == 0 ? "if a = " + i + " {}" : "call(" + i + ")";
+            write(String.format("%s/f%03d.my", dir, i), source);
+        }
+        write("d00/notes.txt", "not a program");
+
+        var out = new ByteArrayOutputStream();
+        var err = new ByteArrayOutputStream();
+        int status = Main.run(new String[]{"check", "--ext", ".my", "--jobs", "4", root.toString()},
+                new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+        assertEquals(Report.FAILED, status);
+
+        var lines = out.toString(StandardCharsets.UTF_8).lines()
+                .filter(line -> line.startsWith(root.toString()))
+                .toList();
+        assertEquals(100, lines.size());
+        var sorted = lines.stream().sorted().toList();
+        assertEquals(sorted, lines);
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("300 files checked, 0 with problems, 100 failed"));
+    }
+
+    @Test
+    public void testCleanTree() throws IOException {
+        write("a/one.my", "call(1)");
+        write("b/two.my", "val x = 2");
+
+        var out = new ByteArrayOutputStream();
+        int status = Main.run(new String[]{"check", root.toString()},
+                new PrintStream(out, true, StandardCharsets.UTF_8), System.err);
+        assertEquals(Report.OK, status);
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("2 files checked, 0 with problems, 0 failed"));
+    }
+
+    @Test
+    public void testSkipsSymlinkCycles() throws IOException {
+        write("a/one.my", "call(1)");
+        Files.createSymbolicLink(root.resolve("a/loop"), root.resolve("a"));
+        Files.createSymbolicLink(root.resolve("a/two.my"), root.resolve("a/one.my"));
+
+        var out = new ByteArrayOutputStream();
+        int status = Main.run(new String[]{"check", root.toString()},
+                new PrintStream(out, true, StandardCharsets.UTF_8), System.err);
+        assertEquals(Report.OK, status);
+        // Links to files are still checked.
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("2 files checked, 0 with problems, 0 failed"));
+    }
+
+    @Test
+    public void testCarriesOnPastUnreadableDirectories() throws IOException {
+        write("a/one.my", "call(1)");
+        write("b/two.my", "call(2)");
+        write("c/three.my", "if a = 1 {}");
+        var locked = root.resolve("b");
+        assumeTrue(locked.toFile().setReadable(false, false) && !Files.isReadable(locked),
+                "File permissions aren't enforced for this user");
+        try {
+            var out = new ByteArrayOutputStream();
+            var err = new ByteArrayOutputStream();
+            int status = Main.run(new String[]{"check", root.toString()},
+                    new PrintStream(out, true, StandardCharsets.UTF_8),
+                    new PrintStream(err, true, StandardCharsets.UTF_8));
+            assertEquals(Report.FAILED, status);
+            assertTrue(err.toString(StandardCharsets.UTF_8).startsWith(locked + ": Cannot list directory"));
+            assertTrue(out.toString(StandardCharsets.UTF_8).contains("2 files checked, 0 with problems, 1 failed"));
+        } finally {
+            locked.toFile().setReadable(true, false);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package mylang.cli;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompileDaemonTest {
+    @TempDir
+    Path root;
+
+    private CompileDaemon daemon;
+    private Thread server;
+
+    private String start(String address) throws IOException {
+        daemon = CompileDaemon.start(address);
+        server = new Thread(() -> {
+            try {
+                daemon.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        server.start();
+        return daemon.address();
+    }
+
+    @AfterEach
+    public void stop() throws Exception {
+        if (daemon != null) {
+            daemon.close();
+            server.join();
+        }
+    }
+
+    private static String[] run(String... args) {
+        var out = new ByteArrayOutputStream();
+        var err = new ByteArrayOutputStream();
+        int status = Main.run(args, new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+        return new String[]{String.valueOf(status), out.toString(StandardCharsets.UTF_8),
+                err.toString(StandardCharsets.UTF_8)};
+    }
+
+    @Test
+    public void testCompilesLikeLocally() throws IOException {
+        var address = start(root.resolve("d.sock").toString());
+        var good = root.resolve("good.my");
+        var bad = root.resolve("bad.my");
+        Files.writeString(good, "if a == 1 {\n    call(a)\n}");
+        Files.writeString(bad, "if a = 1 {}");
+
+        var local = run("compile", good.toString(), bad.toString());
+        var remote = run("compile", "--connect", address, good.toString(), bad.toString());
+        assertEquals(String.valueOf(Report.FAILED), remote[0]);
+        assertEquals(local[0], remote[0]);
+        assertEquals(local[1], remote[1]);
+        assertTrue(remote[1].startsWith(bad + ": "), remote[1]);
+
+        // Unreadable files are reported by the client and don't end the session.
+        var missing = root.resolve("missing.my").toString();
+        remote = run("compile", "--connect", address, missing, good.toString());
+        assertEquals(String.valueOf(Report.FAILED), remote[0]);
+        assertTrue(remote[2].startsWith(missing + ": "), remote[2]);
+    }
+
+    @Test
+    public void testCompileOverLoopbackTcp() throws IOException {
+        var address = start("127.0.0.1:0");
+        assertTrue(address.matches("127\\.0\\.0\\.1:[1-9]\\d*"), address);
+        try (var client = DaemonClient.connect(address)) {
+            var report = new StringBuilder();
+            assertEquals(Report.OK, client.compile("a.my", "call(1)", report));
+            assertEquals("", report.toString());
+            assertEquals(Report.FAILED, client.compile("b.my", "if", report));
+            assertTrue(report.toString().startsWith("b.my: "), report.toString());
+        }
+    }
+
+    @Test
+    public void testRefusesToTakeOverARunningDaemon() throws IOException {
+        var socket = root.resolve("d.sock").toString();
+        start(socket);
+        var e = assertThrows(IOException.class, () -> CompileDaemon.start(socket));
+        assertTrue(e.getMessage().contains("already listening"), e.getMessage());
+        // The running daemon still answers.
+        try (var client = DaemonClient.connect(socket)) {
+            assertEquals(Report.OK, client.compile("a.my", "call(1)", new StringBuilder()));
+        }
+    }
+
+    @Test
+    public void testReplacesStaleSocket() throws IOException {
+        // A socket whose daemon went away without removing it.
+        var socket = root.resolve("d.sock");
+        ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(UnixDomainSocketAddress.of(socket)).close();
+        assertTrue(Files.exists(socket));
+        start(socket.toString());
+        try (var client = DaemonClient.connect(socket.toString())) {
+            assertEquals(Report.OK, client.compile("a.my", "call(1)", new StringBuilder()));
+        }
+    }
+
+    @Test
+    public void testRefusesToReplaceRegularFiles() throws IOException {
+        var notes = root.resolve("notes.txt");
+        Files.writeString(notes, "keep me");
+        var e = assertThrows(IOException.class, () -> CompileDaemon.start(notes.toString()));
+        assertTrue(e.getMessage().contains("exists and is not a socket"), e.getMessage());
+        assertEquals("keep me", Files.readString(notes));
+    }
+
+    @Test
+    public void testRejectsNonLoopbackHosts() {
+        var e = assertThrows(IOException.class, () -> CompileDaemon.start("192.0.2.1:4000"));
+        assertTrue(e.getMessage().contains("not a loopback address"), e.getMessage());
+        assertThrows(IOException.class, () -> DaemonClient.connect("0.0.0.0:4000"));
+    }
+
+    @Test
+    public void testSocketIsOwnerOnly() throws IOException {
+        var socket = root.resolve("d.sock");
+        start(socket.toString());
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(socket)));
+    }
+
+    @Test
+    public void testDefaultAddressIsInAPrivateDirectory() throws IOException {
+        var tmpdir = System.getProperty("java.io.tmpdir");
+        System.setProperty("java.io.tmpdir", root.toString());
+        try {
+            var directory = root.resolve("mylang-" + System.getProperty("user.name"));
+            assertEquals(directory.resolve("daemon.sock").toString(), DaemonAddress.defaultAddress().toString());
+            assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)));
+            // Still fine the next time around.
+            DaemonAddress.defaultAddress();
+
+            Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxr-xr-x"));
+            var e = assertThrows(IOException.class, DaemonAddress::defaultAddress);
+            assertTrue(e.getMessage().contains("accessible to other users"), e.getMessage());
+        } finally {
+            System.setProperty("java.io.tmpdir", tmpdir);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package mylang.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MainTest {
+    @TempDir
+    Path root;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(String... args) {
+        out.reset();
+        err.reset();
+        return Main.run(args, new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testUsage() {
+        assertEquals(Report.USAGE, run());
+        assertTrue(err.toString(StandardCharsets.UTF_8).startsWith("usage:"));
+        assertEquals(Report.USAGE, run("frobnicate"));
+        assertEquals(Report.USAGE, run("compile"));
+        assertEquals(Report.USAGE, run("compile", "--connect", "x.sock"));
+        assertEquals(Report.USAGE, run("daemon", "--listen"));
+        assertEquals(Report.USAGE, run("daemon", "extra"));
+        assertEquals(Report.USAGE, run("check"));
+        assertEquals(Report.USAGE, run("check", "a", "b"));
+        // A bad option value is taken as a stray argument.
+        assertEquals(Report.USAGE, run("check", "--jobs", "0", root.toString()));
+        assertEquals(Report.USAGE, run("watch", "--debounce", "soon", root.toString()));
+        // So is one out of range.
+        assertEquals(Report.USAGE, run("check", "--jobs", "99999999999", root.toString()));
+        assertEquals(Report.USAGE, run("check", "--jobs", "100000", root.toString()));
+        assertEquals(Report.USAGE, run("watch", "--debounce", "99999999999999999999", root.toString()));
+        assertEquals(Report.USAGE, run("watch", "--debounce", "9999999999", root.toString()));
+        assertEquals("", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCompile() throws IOException {
+        var good = root.resolve("good.my");
+        var bad = root.resolve("bad.my");
+        Files.writeString(good, "call(1)");
+        Files.writeString(bad, "if a = 1 {}");
+
+        assertEquals(Report.OK, run("compile", good.toString()));
+        assertEquals("", out.toString(StandardCharsets.UTF_8));
+
+        assertEquals(Report.FAILED, run("compile", good.toString(), bad.toString()));
+        assertTrue(out.toString(StandardCharsets.UTF_8).startsWith(bad + ": "));
+
+        var missing = root.resolve("missing.my").toString();
+        assertEquals(Report.FAILED, run("compile", missing, good.toString()));
+        assertTrue(err.toString(StandardCharsets.UTF_8).startsWith(missing + ": "));
+    }
+
+    @Test
+    public void testCompileWithoutDaemon() {
+        var socket = root.resolve("nobody.sock").toString();
+        assertEquals(Report.FAILED, run("compile", "--connect", socket, "a.my"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("Cannot reach daemon"));
+    }
+}
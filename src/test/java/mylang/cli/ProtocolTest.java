@@ -0,0 +1,76 @@
+package mylang.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProtocolTest {
+    private static DataInputStream input(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testRequestRoundTrip() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        var first = new Protocol.Request("a.my", "if a == 1 {\n    call(a)\n}");
+        var second = new Protocol.Request("ünïcode.my", "val x = 1 // é ✓");
+        Protocol.writeRequest(out, first);
+        Protocol.writeRequest(out, second);
+
+        var in = input(bytes);
+        assertEquals(first, Protocol.readRequest(in));
+        assertEquals(second, Protocol.readRequest(in));
+        // A closed connection reads as no more requests.
+        assertNull(Protocol.readRequest(in));
+    }
+
+    @Test
+    public void testResponseRoundTrip() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var response = new Protocol.Response(Report.PROBLEMS, "a.my: problem ✗\n");
+        Protocol.writeResponse(new DataOutputStream(bytes), response);
+        Protocol.writeResponse(new DataOutputStream(bytes), new Protocol.Response(Report.OK, ""));
+
+        var in = input(bytes);
+        assertEquals(response, Protocol.readResponse(in));
+        assertEquals(new Protocol.Response(Report.OK, ""), Protocol.readResponse(in));
+    }
+
+    @Test
+    public void testBadFrames() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        out.writeUTF("a.my");
+        out.writeInt(-1);
+        assertThrows(IOException.class, () -> Protocol.readRequest(input(bytes)));
+
+        bytes.reset();
+        out.writeUTF("a.my");
+        out.writeInt(10);
+        out.write(new byte[4]);
+        assertThrows(IOException.class, () -> Protocol.readRequest(input(bytes)));
+    }
+
+    @Test
+    public void testOversizedFrames() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        var huge = "a".repeat(Protocol.MAX_FRAME + 1);
+        assertFalse(Protocol.writeRequest(out, new Protocol.Request("huge.my", huge)));
+        assertEquals(0, bytes.size());
+        assertThrows(IOException.class, () -> Protocol.writeResponse(out, new Protocol.Response(Report.OK, huge)));
+
+        bytes.reset();
+        out.writeUTF("huge.my");
+        out.writeInt(Protocol.MAX_FRAME + 1);
+        var e = assertThrows(IOException.class, () -> Protocol.readRequest(input(bytes)));
+        assertTrue(e.getMessage().startsWith("Invalid frame length"), e.getMessage());
+    }
+}
@@ -0,0 +1,182 @@
+package mylang.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WatchCommandTest {
+    @TempDir
+    Path root;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+
+    private String output() {
+        var text = bytes.toString(StandardCharsets.UTF_8);
+        bytes.reset();
+        return text;
+    }
+
+    // Polls until `expected` shows up, since file system events take a moment to arrive and may come in more than
+    // one batch.
+    private String awaitOutput(WatchCommand watch, String expected) throws IOException, InterruptedException {
+        var output = new StringBuilder();
+        for (int i = 0; i < 50 && !output.toString().contains(expected); i++) {
+            watch.poll(Duration.ofMillis(200), out);
+            output.append(output());
+        }
+        assertTrue(output.toString().contains(expected), output::toString);
+        return output.toString();
+    }
+
+    @Test
+    public void testReportsOnlyNewAndResolvedProblems() throws Exception {
+        var broken = root.resolve("a/broken.my");
+        var fine = root.resolve("b/fine.my");
+        Files.createDirectories(broken.getParent());
+        Files.createDirectories(fine.getParent());
+        Files.writeString(broken, "if a = 1 {}");
+        Files.writeString(fine, "call(1)");
+
+        try (var watch = new WatchCommand(root, ".my", 2, Duration.ofMillis(20))) {
+            watch.start(out);
+            var initial = output();
+            assertTrue(initial.contains("+ " + broken + ": Unexpected operator `=`"));
+            assertTrue(initial.contains("2 files watched, 1 with problems"));
+
+            Files.writeString(fine, "call(1");
+            var update = awaitOutput(watch, "+ " + fine + ": ");
+            assertFalse(update.contains(broken.toString()));
+
+            Files.writeString(broken, "if a == 1 {}");
+            update = awaitOutput(watch, "- " + broken + ": Unexpected operator `=`");
+            assertFalse(update.contains("+ "));
+
+            var added = root.resolve("c/new.my");
+            Files.createDirectories(added.getParent());
+            Files.writeString(added, "val = 1");
+            awaitOutput(watch, "+ " + added + ": ");
+
+            Files.delete(fine);
+            awaitOutput(watch, "- " + fine + ": ");
+        }
+    }
+
+    @Test
+    public void testNoticesEditsWithCollidingHashCodes() throws Exception {
+        var file = root.resolve("a.my");
+        var fine = "call(1)";
+        var broken = "call(2\n";
+        assertEquals(fine.hashCode(), broken.hashCode());
+        Files.writeString(file, fine);
+
+        try (var watch = new WatchCommand(root, ".my", 1, Duration.ofMillis(20))) {
+            watch.start(out);
+            assertTrue(output().contains("1 files watched, 0 with problems"));
+
+            Files.writeString(file, broken);
+            awaitOutput(watch, "+ " + file + ": ");
+        }
+    }
+
+    @Test
+    public void testKeepsWatchingWhenDirectoriesVanish() throws Exception {
+        var file = root.resolve("a.my");
+        Files.writeString(file, "call(1)");
+
+        try (var watch = new WatchCommand(root, ".my", 1, Duration.ofMillis(20))) {
+            watch.start(out);
+            output();
+
+            // Deleted while the watch walks it, like the temp directories of build tools. Deepest first, so the walk
+            // keeps running into directories its parent listed a moment ago.
+            for (int i = 0; i < 10; i++) {
+                var dir = root.resolve("tmp" + i);
+                var chain = new ArrayList<Path>();
+                for (var path = dir; chain.size() < 50; path = path.resolve("d"))
+                    chain.add(path);
+                Files.createDirectories(chain.get(chain.size() - 1));
+                var deleter = new Thread(() -> {
+                    try {
+                        for (int j = chain.size() - 1; j >= 0; j--)
+                            Files.delete(chain.get(j));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                deleter.start();
+                watch.poll(Duration.ofMillis(200), out);
+                deleter.join();
+            }
+            while (watch.poll(Duration.ofMillis(50), out) > 0)
+                output();
+
+            Files.writeString(file, "call(1");
+            var update = awaitOutput(watch, "+ " + file + ": ");
+            assertFalse(update.contains("Cannot watch directory"), update);
+        }
+    }
+
+    @Test
+    public void testIgnoresChangesToDirectories() throws Exception {
+        var dir = root.resolve("sub");
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve("a.my"), "call(1)");
+
+        try (var watch = new WatchCommand(root, "", 1, Duration.ofMillis(20))) {
+            watch.start(out);
+            assertTrue(output().contains("1 files watched, 0 with problems"));
+
+            Files.setLastModifiedTime(dir, FileTime.fromMillis(0));
+            assertEquals(0, watch.poll(Duration.ofMillis(500), out));
+            assertEquals("", output());
+        }
+    }
+
+    @Test
+    public void testBatchesEndWhileFilesKeepChanging() throws Exception {
+        var noisy = root.resolve("noisy.my");
+        Files.writeString(noisy, "call(0)");
+        var debounce = Duration.ofMillis(50);
+
+        try (var watch = new WatchCommand(root, ".my", 1, debounce)) {
+            watch.start(out);
+            output();
+
+            var writing = new AtomicBoolean(true);
+            var writer = new Thread(() -> {
+                for (int i = 1; writing.get(); i++) {
+                    try {
+                        Files.writeString(noisy, "call(" + i + ")");
+                        Thread.sleep(5);
+                    } catch (IOException | InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            writer.start();
+            try {
+                long start = System.nanoTime();
+                assertEquals(1, watch.poll(Duration.ofSeconds(5), out));
+                var elapsed = Duration.ofNanos(System.nanoTime() - start);
+                assertTrue(elapsed.compareTo(Duration.ofSeconds(2)) < 0, elapsed::toString);
+            } finally {
+                writing.set(false);
+                writer.join();
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package mylang.eval;
+
+import mylang.Parser;
+import mylang.ast.ConditionExpression;
+import mylang.ast.IfStatement;
+import mylang.ast.Span;
+import mylang.ast.Statement;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchEvaluatorTest {
+    private static Statement parse(String source) {
+        var result = new Parser(source).parse();
+        assertFalse(result.hasProblems());
+        return result.astRoot();
+    }
+
+    private static ConditionExpression condition(String condition) {
+        return ((IfStatement) parse("if " + condition + " {}")).getConditionExpression();
+    }
+
+    @Test
+    public void testSelectMatchesRowByRowEvaluation() {
+        var random = new Random(42);
+        // Not a multiple of 64, so that the last word is partial.
+        int rows = 1000;
+        int[] a = new int[rows];
+        int[] b = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            a[i] = random.nextInt(20);
+            b[i] = random.nextInt(20);
+        }
+        var evaluator = new BatchEvaluator(Map.of("a", a, "b", b));
+
+        for (var op : List.of("<", "<=", ">", ">=", "==", "!=")) {
+            var byConstant = evaluator.select(condition("a " + op + " 10"));
+            var byColumn = evaluator.select(condition("a " + op + " b"));
+            var flipped = evaluator.select(condition("10 " + op + " a"));
+            for (int i = 0; i < rows; i++) {
+                assertEquals(compare(a[i], op, 10), byConstant.get(i), op);
+                assertEquals(compare(a[i], op, b[i]), byColumn.get(i), op);
+                assertEquals(compare(10, op, a[i]), flipped.get(i), op);
+            }
+        }
+
+        var all = evaluator.select(condition("1 < 2"));
+        assertEquals(rows, all.cardinality());
+        assertTrue(evaluator.select(condition("2 < 1")).isEmpty());
+    }
+
+    private static boolean compare(int a, String op, int b) {
+        return switch (op) {
+            case "<" -> a < b;
+            case "<=" -> a <= b;
+            case ">" -> a > b;
+            case ">=" -> a >= b;
+            case "==" -> a == b;
+            default -> a != b;
+        };
+    }
+
+    @Test
+    public void testExecuteNestedBodies() {
+        int[] age = {10, 20, 30, 40, 50};
+        var evaluator = new BatchEvaluator(Map.of("age", age));
+        var program = parse("if age > 15 {\nall(age)\nval limit = 40\nif age < limit {\nyoung(age, 1)\n}\n}");
+
+        var calls = new ArrayList<String>();
+        evaluator.execute(program, (call, row, arguments) -> calls.add(call.name().name() + " " + arguments[0]));
+        assertEquals(List.of("all 20", "all 30", "all 40", "all 50", "young 20", "young 30"), calls);
+    }
+
+    @Test
+    public void testDeclarationShadowsColumnInArguments() {
+        var evaluator = new BatchEvaluator(Map.of("age", new int[]{10, 20}, "limit", new int[]{7, 7}));
+        var program = parse("if age > 15 {\nf(limit, age)\nval limit = 40\nf(limit age 3)\n}");
+
+        var calls = new ArrayList<String>();
+        evaluator.execute(program, (call, row, arguments) ->
+                calls.add(row + " " + Arrays.toString(arguments)));
+        assertEquals(List.of("1 [7, 20]", "1 [40, 20, 3]"), calls);
+
+        var e = assertThrows(RuntimeException.class, () -> evaluator.execute(parse("if age > 15 { f(b) }"),
+                (call, row, arguments) -> {}));
+        assertEquals("Unknown column `b`", e.getMessage());
+    }
+
+    @Test
+    public void testUnknownColumn() {
+        var evaluator = new BatchEvaluator(Map.of("a", new int[3]));
+        var e = assertThrows(RuntimeException.class, () -> evaluator.select(condition("b < 1")));
+        assertEquals("Unknown column `b`", e.getMessage());
+    }
+
+    @Test
+    public void testProfile() {
+        var program = parse("if a < 5 {\n" +
+                "    val limit = 3\n" +
+                "    hit(a)\n" +
+                "    if a > limit {\n" +
+                "        high(a)\n" +
+                "    }\n" +
+                "    if a > 100 {\n" +
+                "        never()\n" +
+                "    }\n" +
+                "}");
+        // 0..9, so 5 rows below 5, one of them above 3.
+        var evaluator = new BatchEvaluator(Map.of("a", new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}));
+        var profile = new ExecutionProfile(program);
+        assertEquals(7, profile.size());
+        for (int i = 0; i < 2; i++)
+            evaluator.execute(program, (call, row, arguments) -> {}, profile);
+
+        var counts = profile.snapshot();
+        // Pre-order: if, val, hit, if, high, if, never.
+        assertEquals(List.of("0 2 20 10", "1 2 10 0", "2 2 10 10", "3 2 10 2", "4 2 2 2", "5 2 10 0", "6 0 0 0"),
+                counts.stream().map(c -> c.id() + " " + c.executions() + " " + c.rows() + " " + c.matched())
+                        .toList());
+        assertSame(program, counts.get(0).statement());
+
+        var out = new StringBuilder();
+        profile.export(out);
+        var lines = out.toString().split("\n");
+        assertEquals("id\tkind\tstart\tend\texecutions\trows\tmatched\tstatement", lines[0]);
+        assertEquals("0\tif\t0\t" + Span.end(program.span()) + "\t2\t20\t10\ta < 5", lines[1]);
+        assertEquals("4\tcall\t67\t74\t2\t2\t2\thigh", lines[5]);
+
+        assertEquals(2, profile.snapshotAndReset().get(0).executions());
+        assertEquals(0, profile.snapshot().get(0).executions());
+
+        assertThrows(RuntimeException.class, () -> evaluator.execute(parse("if a < 5 {}"), (call, row, arguments) -> {},
+                profile));
+    }
+}
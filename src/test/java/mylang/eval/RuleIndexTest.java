@@ -0,0 +1,80 @@
+package mylang.eval;
+
+import mylang.CompilationResult;
+import mylang.Parser;
+import mylang.ast.IfStatement;
+import mylang.ast.Name;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuleIndexTest {
+    private static final String[] OPERATORS = {"<", "<=", ">", ">=", "==", "!="};
+
+    private static List<CompilationResult> compile(String... programs) {
+        var out = new ArrayList<CompilationResult>();
+        for (var program : programs)
+            out.add(new Parser(program).parse());
+        return out;
+    }
+
+    @Test
+    public void testMatch() {
+        var index = new RuleIndex(compile(
+                "if age > 18 { allow() }",
+                "if 65 <= age { discount() }",
+                "if country == 44 {}",
+                "if age != 30 {}",
+                "if age < limit {}",
+                "if 1 == 2 {}",
+                "log(age)",
+                "if age == \"x\" {}",
+                "if missing < 10 {}"));
+        assertEquals(9, index.size());
+        assertArrayEquals(new int[]{0, 3, 6}, index.match(Map.of("age", 20)));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 6}, index.match(Map.of("age", 70, "country", 44, "limit", 80)));
+        assertArrayEquals(new int[]{0, 6}, index.match(Map.of("age", 30, "limit", 30)));
+        assertArrayEquals(new int[]{6}, index.match(Map.of()));
+    }
+
+    @Test
+    public void testMatchesEveryRuleWouldOnItsOwn() {
+        var random = new Random(42);
+        var programs = new ArrayList<String>();
+        for (int i = 0; i < 2000; i++) {
+            var name = String.valueOf((char) ('a' + random.nextInt(5)));
+            var op = OPERATORS[random.nextInt(OPERATORS.length)];
+            var number = random.nextInt(50);
+            programs.add(random.nextBoolean() ? "if " + name + " " + op + " " + number + " {}"
+                    : "if " + number + " " + op + " " + name + " {}");
+        }
+        var results = compile(programs.toArray(String[]::new));
+        var index = new RuleIndex(results);
+
+        for (int i = 0; i < 200; i++) {
+            var event = new HashMap<String, Integer>();
+            for (int f = 0; f < 5; f++)
+                if (random.nextInt(4) != 0)
+                    event.put(String.valueOf((char) ('a' + f)), random.nextInt(60) - 5);
+            // One program at a time, with a single row per column.
+            var columns = new HashMap<String, int[]>();
+            event.forEach((name, value) -> columns.put(name, new int[]{value}));
+            var evaluator = new BatchEvaluator(columns);
+            var expected = IntStream.range(0, results.size()).filter(rule -> {
+                var condition = ((IfStatement) results.get(rule).astRoot()).getConditionExpression();
+                var lhs = condition.lhs() instanceof Name name ? name.name() : null;
+                var rhs = condition.rhs() instanceof Name name ? name.name() : null;
+                var used = lhs != null ? lhs : rhs;
+                return event.containsKey(used) && evaluator.select(condition).get(0);
+            }).toArray();
+            assertArrayEquals(expected, index.match(event));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package mylang.json;
+
+import mylang.Parser;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonEmitterTest {
+    private static String write(String source) {
+        var out = new StringBuilder();
+        new JsonEmitter(out).write(new Parser(source).parse());
+        return out.toString();
+    }
+
+    private static String stream(String source) {
+        var out = new ByteArrayOutputStream();
+        var emitter = new JsonEmitter(out);
+        emitter.finish(new Parser(source).parse(emitter));
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void testWriteResult() {
+        assertEquals("{\"ast\":{\"kind\":\"if\",\"condition\":{\"kind\":\"condition\",\"operator\":\"<\"," +
+                "\"lhs\":{\"kind\":\"name\",\"name\":\"a\",\"span\":[3,4]}," +
+                "\"rhs\":{\"kind\":\"number\",\"value\":2,\"span\":[7,8]},\"span\":[3,8]},\"body\":[" +
+                "{\"kind\":\"val\",\"name\":{\"kind\":\"name\",\"name\":\"b\",\"span\":[15,16]}," +
+                "\"value\":{\"kind\":\"number\",\"value\":1,\"span\":[19,20]},\"span\":[11,20]}," +
+                "{\"kind\":\"call\",\"name\":{\"kind\":\"name\",\"name\":\"f\",\"span\":[21,22]},\"arguments\":[" +
+                "{\"kind\":\"name\",\"name\":\"b\",\"span\":[23,24]}],\"span\":[21,25]}],\"span\":[0,27]}," +
+                "\"failed\":false,\"problems\":[]}", write("if a < 2 {\nval b = 1\nf(b)\n}"));
+    }
+
+    @Test
+    public void testStreamingMatchesWrite() {
+        var source = new StringBuilder("if a == 1 {\n");
+        for (int i = 0; i < 2000; i++)
+            source.append("    if b != ").append(i).append(" {\n        val c = ").append(i)
+                    .append("\n        log(c, b)\n    }\n");
+        source.append("}");
+        var expected = write(source.toString());
+        assertTrue(expected.length() > 8192);
+        assertEquals(expected, stream(source.toString()));
+    }
+
+    @Test
+    public void testProblems() {
+        var json = stream("val x = \"1\"");
+        assertTrue(json.startsWith("{\"ast\":null,\"failed\":true,\"problems\":[{\"line\":1,\"column\":"), json);
+        assertEquals(json, write("val x = \"1\""));
+    }
+
+    @Test
+    public void testDiscardedIf() {
+        var json = stream("if a == 1 { f()");
+        assertTrue(json.startsWith("{\"ast\":{\"kind\":\"if\""), json);
+        assertTrue(json.contains("\"span\":[12,15]}],\"discarded\":true},\"failed\":true"), json);
+    }
+
+    @Test
+    public void testEscaping() {
+        var json = stream("val x = \"1\"");
+        assertTrue(json.contains("\"description\":\"Unexpected symbol `\\\"`\""), json);
+        assertTrue(stream("val \u00e9 = 1").chars().allMatch(c -> c < 0x80));
+    }
+}
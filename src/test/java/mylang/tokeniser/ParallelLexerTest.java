@@ -0,0 +1,92 @@
+package mylang.tokeniser;
+
+import mylang.Parser;
+import mylang.ast.IfStatement;
+import mylang.ast.Statement;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelLexerTest {
+    private static final List<String> LINES = List.of("    val x = 10", "call(a, b)", "  call(1 2)", "",
+            "if a <= 3 {", "}", "abc", "def", "12", "34", "x <", "= 5", "  ", "\tval y = 2");
+
+    // Lines picked at random, including ones that run on into the next line.
+    private static String randomSource(Random random, int lines) {
+        var builder = new StringBuilder();
+        for (int i = 0; i < lines; i++)
+            builder.append(LINES.get(random.nextInt(LINES.size()))).append('\n');
+        return builder.toString();
+    }
+
+    private static TokenBuffer lexSequentially(String source) {
+        var tokenizer = Tokenizer.getInstance(source).get();
+        var buffer = new TokenBuffer(source, new byte[0], 16);
+        while (true) {
+            int next = tokenizer.nextTokenStart();
+            if (next < 0)
+                return buffer;
+            var result = tokenizer.eatToken();
+            if (result.failure()) {
+                buffer.markIncomplete();
+                return buffer;
+            }
+            tokenizer.record(buffer, result.get());
+        }
+    }
+
+    @Test
+    public void testShardedTokensMatchSequentialTokens() {
+        var random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            var source = randomSource(random, 200);
+            var expected = lexSequentially(source);
+            for (int shards : new int[]{1, 2, 5, 16}) {
+                var actual = ParallelLexer.lex(source, shards);
+                assertEquals(expected.size(), actual.size());
+                assertEquals(expected.complete(), actual.complete());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.token(i), actual.token(i));
+                    assertEquals(expected.start(i), actual.start(i));
+                    assertEquals(expected.end(i), actual.end(i));
+                }
+            }
+        }
+    }
+
+    // If statements don't implement `equals()`.
+    private static String dump(Statement statement) {
+        if (!(statement instanceof IfStatement ifStatement))
+            return statement.toString();
+        var builder = new StringBuilder("if ").append(ifStatement.getConditionExpression())
+                .append(' ').append(ifStatement.span()).append(" {");
+        for (var nested : ifStatement.statements())
+            builder.append(dump(nested)).append(';');
+        return builder.append('}').toString();
+    }
+
+    @Test
+    public void testParserConsumesShardedTokens() {
+        var random = new Random(11);
+        for (int round = 0; round < 50; round++) {
+            // An if body, so that broken lines are recovered from rather than ending the parse.
+            var source = "if a == 1 {\n" + randomSource(random, 100) + "}\n";
+            var expected = new Parser(source).parse();
+
+            var parser = new Parser();
+            parser.reset(source, ParallelLexer.lex(source, 8));
+            var actual = parser.parse();
+
+            assertEquals(expected.failed(), actual.failed());
+            assertEquals(expected.problems().size(), actual.problems().size());
+            for (int i = 0; i < expected.problems().size(); i++)
+                assertEquals(expected.problems().get(i).prettyError(), actual.problems().get(i).prettyError());
+            if (!expected.failed()) {
+                assertEquals(dump(expected.astRoot()), dump(actual.astRoot()));
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package mylang.tokeniser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScannerTest {
+    private static final String ALPHABET = "abcz09 \t\n(){}=<>!,_A@" + (char) 0xe9 + (char) 0x2020;
+
+    private static byte[] randomBytes(Random random, int length, String alphabet) {
+        var bytes = new byte[length];
+        for (int i = 0; i < length; i++)
+            bytes[i] = Scanner.narrow(alphabet.charAt(random.nextInt(alphabet.length())));
+        return bytes;
+    }
+
+    private static void assertSameScans(byte[] bytes) {
+        for (int from = 0; from <= bytes.length; from++) {
+            for (int to = from; to <= bytes.length; to += 3) {
+                assertEquals(Scanner.scalarSkipWhitespace(bytes, from, to), Scanner.swarSkipWhitespace(bytes, from, to));
+                assertEquals(Scanner.scalarSkipAlpha(bytes, from, to), Scanner.swarSkipAlpha(bytes, from, to));
+                assertEquals(Scanner.scalarSkipDigits(bytes, from, to), Scanner.swarSkipDigits(bytes, from, to));
+                assertEquals(Scanner.scalarFindNewline(bytes, from, to), Scanner.swarFindNewline(bytes, from, to));
+            }
+        }
+    }
+
+    @Test
+    public void testSwarMatchesScalarOnRandomInput() {
+        var random = new Random(42);
+        for (int i = 0; i < 50; i++)
+            assertSameScans(randomBytes(random, 1 + random.nextInt(80), ALPHABET));
+    }
+
+    @Test
+    public void testSwarMatchesScalarOnLongRuns() {
+        var random = new Random(7);
+        // Mostly one class, with the odd intruder, so that runs cross several words.
+        for (var run : new String[]{"  \t", "abcxyz", "0123456789"}) {
+            for (int i = 0; i < 20; i++) {
+                var bytes = randomBytes(random, 100, run);
+                bytes[random.nextInt(bytes.length)] = Scanner.narrow((char) 0x2020);
+                bytes[random.nextInt(bytes.length)] = '\n';
+                assertSameScans(bytes);
+            }
+        }
+    }
+
+    @Test
+    public void testEveryByteIsClassifiedLikeTheScalarScan() {
+        var bytes = new byte[16];
+        for (int value = 0; value < 256; value++) {
+            for (int position = 0; position < bytes.length; position++) {
+                Arrays.fill(bytes, (byte) 'a');
+                bytes[position] = (byte) value;
+                assertSameScans(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package mylang.tokeniser;
+
+import mylang.CompilationResult;
+import mylang.ParseLimits;
+import mylang.Parser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenRingTest {
+    private static final List<String> LINES = List.of("    val x = 10", "call(a, b)", "  call(1 2)", "",
+            "if a <= 3 {", "}", "abc", "def", "x <", "= 5", "\tval y = 2");
+
+    private static String randomProgram(Random random, int lines) {
+        var builder = new StringBuilder("if a == 1 {\n");
+        for (int i = 0; i < lines; i++)
+            builder.append(LINES.get(random.nextInt(LINES.size()))).append('\n');
+        return builder.append("}\n").toString();
+    }
+
+    @Test
+    public void testPipelinedParseMatchesParse() {
+        var random = new Random(3);
+        var parser = new Parser();
+        for (int round = 0; round < 50; round++) {
+            var source = randomProgram(random, 300);
+            var expected = new Parser(source).parse();
+
+            // A tiny ring, so that the lexer keeps waiting on the parser and wrapping around.
+            parser.reset(source, TokenRing.start(source, 16));
+            var actual = parser.parse();
+
+            assertEquals(expected.failed(), actual.failed());
+            assertEquals(expected.problems().size(), actual.problems().size());
+            for (int i = 0; i < expected.problems().size(); i++)
+                assertEquals(expected.problems().get(i).prettyError(), actual.problems().get(i).prettyError());
+        }
+    }
+
+    @Test
+    public void testLexerStopsWhenParseDoes() throws InterruptedException {
+        var source = "if a == 1 {\n" + "call(1, 2)\n".repeat(100_000) + "}";
+        var ring = TokenRing.start(source, 64);
+        var parser = new Parser();
+        parser.setLimits(ParseLimits.DEFAULT.withMaxTokens(100));
+        parser.reset(source, ring);
+        assertTrue(parser.parse().failed());
+
+        for (int i = 0; i < 100 && !ring.done(); i++)
+            Thread.sleep(10);
+        assertTrue(ring.done());
+    }
+
+    private static void awaitDone(TokenRing ring) throws InterruptedException {
+        long deadline = System.nanoTime() + 3 * TokenRing.ABANDON_NANOS;
+        while (!ring.done() && System.nanoTime() < deadline)
+            Thread.sleep(10);
+        assertTrue(ring.done());
+    }
+
+    private static List<String> describe(Iterator<CompilationResult> statements) {
+        var out = new ArrayList<String>();
+        statements.forEachRemaining(result -> out.add(result.failed() + " " + result.problems().stream()
+                .map(p -> p.prettyError()).toList()));
+        return out;
+    }
+
+    @Test
+    public void testLexerGivesUpOnAbandonedIterator() throws InterruptedException {
+        var source = "call(1, 2)\n".repeat(100_000);
+        var ring = TokenRing.start(source, 64);
+        var parser = new Parser();
+        parser.reset(source, ring);
+        var statements = parser.parseStatements();
+        assertFalse(statements.next().failed());
+        // Dropped without finishing.
+        awaitDone(ring);
+    }
+
+    @Test
+    public void testSlowConsumerStillGetsEveryStatement() throws InterruptedException {
+        var source = "call(1, 2)\nval x = \ncall(3)\n".repeat(2_000);
+        var ring = TokenRing.start(source, 64);
+        var parser = new Parser();
+        parser.reset(source, ring);
+        var statements = parser.parseStatements();
+        var first = statements.next();
+        // The lexer gives up while we dawdle, and the parser lexes the rest itself.
+        awaitDone(ring);
+
+        var expected = describe(new Parser(source).parseStatements());
+        var actual = new ArrayList<String>();
+        actual.add(first.failed() + " " + first.problems().stream().map(p -> p.prettyError()).toList());
+        actual.addAll(describe(statements));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testLexerStopsWhenAsyncParseIsCancelledEarly() throws InterruptedException {
+        var source = "if a == 1 {\n" + "call(1, 2)\n".repeat(100_000) + "}";
+        var ring = TokenRing.start(source, 64);
+        var parser = new Parser();
+        parser.reset(source, ring);
+        var tasks = new ArrayList<Runnable>();
+        var future = parser.parseAsync(tasks::add);
+        future.cancel(true);
+        tasks.get(0).run();
+
+        // Well before the lexer would give up by itself.
+        for (int i = 0; i < 50 && !ring.done(); i++)
+            Thread.sleep(10);
+        assertTrue(ring.done());
+    }
+}